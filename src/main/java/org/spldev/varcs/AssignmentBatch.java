@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import java.util.*;
+
+public class AssignmentBatch {
+
+    public static final int CAPACITY = Long.SIZE;
+
+    private final VariableAssignment[] assignments = new VariableAssignment[CAPACITY];
+    private int size = 0;
+
+    // Lane words are built on first use, so only variables that occur in evaluated conditions are looked up.
+    private long[] variableWords = new long[0];
+    private long[] computedVariables = new long[0];
+
+    private long[] conditionValues = new long[0];
+    private long[] evaluatedConditions = new long[0];
+
+    public boolean add(VariableAssignment assignment) {
+        if (size == CAPACITY) {
+            throw new IllegalStateException("Batch is full");
+        }
+        assignments[size++] = assignment;
+        Arrays.fill(computedVariables, 0L);
+        Arrays.fill(evaluatedConditions, 0L);
+        return size == CAPACITY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public VariableAssignment getAssignment(int lane) {
+        return assignments[lane];
+    }
+
+    public long getLanes() {
+        return size == CAPACITY ? -1L : (1L << size) - 1;
+    }
+
+    public long getVariable(int variableIndex) {
+        final int wordIndex = variableIndex >>> 6;
+        if ((wordIndex < computedVariables.length) && ((computedVariables[wordIndex] & (1L << variableIndex)) != 0)) {
+            return variableWords[variableIndex];
+        }
+        long word = 0L;
+        for (int lane = 0; lane < size; lane++) {
+            if (assignments[lane].get(variableIndex)) {
+                word |= 1L << lane;
+            }
+        }
+        if (variableIndex >= variableWords.length) {
+            variableWords = Arrays.copyOf(variableWords, Math.max(variableIndex + 1, 2 * variableWords.length));
+        }
+        if (wordIndex >= computedVariables.length) {
+            computedVariables =
+                    Arrays.copyOf(computedVariables, Math.max(wordIndex + 1, 2 * computedVariables.length));
+        }
+        variableWords[variableIndex] = word;
+        computedVariables[wordIndex] |= 1L << variableIndex;
+        return word;
+    }
+
+    public boolean hasConditionValue(int conditionIndex) {
+        final int wordIndex = conditionIndex >>> 6;
+        return (wordIndex < evaluatedConditions.length)
+                && ((evaluatedConditions[wordIndex] & (1L << conditionIndex)) != 0);
+    }
+
+    public long getConditionValue(int conditionIndex) {
+        return conditionValues[conditionIndex];
+    }
+
+    public void setConditionValue(int conditionIndex, long value) {
+        if (conditionIndex >= conditionValues.length) {
+            conditionValues =
+                    Arrays.copyOf(conditionValues, Math.max(conditionIndex + 1, 2 * conditionValues.length));
+        }
+        final int wordIndex = conditionIndex >>> 6;
+        if (wordIndex >= evaluatedConditions.length) {
+            evaluatedConditions =
+                    Arrays.copyOf(evaluatedConditions, Math.max(wordIndex + 1, 2 * evaluatedConditions.length));
+        }
+        conditionValues[conditionIndex] = value;
+        evaluatedConditions[wordIndex] |= 1L << conditionIndex;
+    }
+
+    public void clear() {
+        Arrays.fill(assignments, 0, size, null);
+        size = 0;
+        Arrays.fill(computedVariables, 0L);
+        Arrays.fill(evaluatedConditions, 0L);
+    }
+}
@@ -0,0 +1,709 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import it.unimi.dsi.fastutil.ints.*;
+import java.util.*;
+import org.prop4j.*;
+
+public class BDDNodeDictionary extends NodeDictionary {
+
+    public static final int FALSE = 0;
+    public static final int TRUE = 1;
+
+    private static final int TERMINAL_VARIABLE = Integer.MAX_VALUE;
+
+    private static final int AND = 1;
+    private static final int OR = 2;
+    private static final int NOT = 3;
+
+    private static final int INSTRUCTION_TASK = 0;
+    private static final int NODE_TASK = 1;
+
+    private static final int CACHE_BITS = 18;
+    private static final int CACHE_MASK = (1 << CACHE_BITS) - 1;
+
+    private final Object lock = new Object();
+
+    private volatile int[] nodes = new int[3 * 1024];
+    private int nodeCount;
+
+    private int[] uniqueTable;
+    private int uniqueMask;
+
+    private final int[] cache = new int[4 << CACHE_BITS];
+
+    private volatile int[] conditionRoots = new int[1024];
+    private volatile int conditionCount;
+
+    private final Int2IntOpenHashMap rootToCondition = new Int2IntOpenHashMap();
+
+    // While a condition is looked up without adding it, nodes missing from the table are built here instead, numbered
+    // from nodeCount on. Guarded by lock.
+    private IntArrayList virtualNodes;
+    private HashMap<NodeKey, Integer> virtualTable;
+
+    private static final class NodeKey {
+        private final int variable;
+        private final int low;
+        private final int high;
+
+        private NodeKey(int variable, int low, int high) {
+            this.variable = variable;
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash(variable, low, high);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof NodeKey)) {
+                return false;
+            }
+            final NodeKey other = (NodeKey) obj;
+            return (variable == other.variable) && (low == other.low) && (high == other.high);
+        }
+    }
+
+    public BDDNodeDictionary() {
+        rootToCondition.defaultReturnValue(-1);
+        initialize();
+    }
+
+    private void initialize() {
+        nodes[0] = TERMINAL_VARIABLE;
+        nodes[3] = TERMINAL_VARIABLE;
+        nodeCount = 2;
+        uniqueTable = new int[1 << 12];
+        Arrays.fill(uniqueTable, -1);
+        uniqueMask = uniqueTable.length - 1;
+        conditionCount = 0;
+        rootToCondition.clear();
+    }
+
+    @Override
+    public NodeDictionary createEmpty() {
+        final BDDNodeDictionary nodeDictionary = new BDDNodeDictionary();
+        for (final String variable : getVariables()) {
+            nodeDictionary.putVariable(variable);
+        }
+        return nodeDictionary;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            Arrays.fill(cache, 0);
+            initialize();
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getNodeVariable(int node) {
+        return nodes[3 * node];
+    }
+
+    public int getNodeLow(int node) {
+        return nodes[3 * node + 1];
+    }
+
+    public int getNodeHigh(int node) {
+        return nodes[3 * node + 2];
+    }
+
+    public int getRoot(int index) {
+        return conditionRoots[index];
+    }
+
+    public int putNode(int variable, int low, int high) {
+        synchronized (lock) {
+            return makeNode(variable, low, high);
+        }
+    }
+
+    public int putRoot(int root) {
+        synchronized (lock) {
+            return addCondition(root);
+        }
+    }
+
+    @Override
+    public int getConditionCount() {
+        return conditionCount;
+    }
+
+    @Override
+    public ArrayList<Node> getConditions() {
+        final ArrayList<Node> conditions = new ArrayList<>(conditionCount);
+        final Int2ObjectOpenHashMap<Node> nodeMap = new Int2ObjectOpenHashMap<>();
+        for (int i = 0; i < conditionCount; i++) {
+            conditions.add(toNode(conditionRoots[i], nodeMap));
+        }
+        return conditions;
+    }
+
+    @Override
+    public Node getCondition(int index) {
+        return toNode(conditionRoots[index], new Int2ObjectOpenHashMap<>());
+    }
+
+    // Compiles the BDD itself rather than its expansion into a tree. Nodes with several parents, and nodes that are
+    // roots of other conditions, are referenced as conditions; shared nodes become conditions for that purpose.
+    @Override
+    public int[] getProgram(int index) {
+        synchronized (lock) {
+            final int root = conditionRoots[index];
+            final Int2IntOpenHashMap parentCounts = countParents(root);
+            final IntArrayList program = new IntArrayList();
+            final IntArrayList tasks = new IntArrayList();
+            addTask(tasks, NODE_TASK, root);
+            while (!tasks.isEmpty()) {
+                final int task = tasks.popInt();
+                final int value = tasks.popInt();
+                if (task == INSTRUCTION_TASK) {
+                    program.add(value);
+                } else if (value == TRUE) {
+                    program.add(ConditionProgram.instruction(ConditionProgram.AND, 0));
+                } else if (value == FALSE) {
+                    program.add(ConditionProgram.instruction(ConditionProgram.OR, 0));
+                } else if ((value != root) && ((parentCounts.get(value) > 1) || rootToCondition.containsKey(value))) {
+                    program.add(ConditionProgram.instruction(ConditionProgram.CONDITION, getConditionIndex(value)));
+                } else {
+                    addNodeTasks(tasks, value);
+                }
+            }
+            return program.toIntArray();
+        }
+    }
+
+    private Int2IntOpenHashMap countParents(int root) {
+        final Int2IntOpenHashMap parentCounts = new Int2IntOpenHashMap();
+        final IntArrayList stack = new IntArrayList();
+        if (root > TRUE) {
+            stack.add(root);
+        }
+        while (!stack.isEmpty()) {
+            final int node = stack.popInt();
+            addParent(parentCounts, stack, getNodeLow(node));
+            addParent(parentCounts, stack, getNodeHigh(node));
+        }
+        return parentCounts;
+    }
+
+    private static void addParent(Int2IntOpenHashMap parentCounts, IntArrayList stack, int child) {
+        if ((child > TRUE) && (parentCounts.addTo(child, 1) == 0)) {
+            stack.add(child);
+        }
+    }
+
+    // Pushes the instructions for (v & high) | (!v & low) in reverse, simplified where a child is a terminal.
+    private void addNodeTasks(IntArrayList tasks, int node) {
+        final int variable = getNodeVariable(node);
+        final int low = getNodeLow(node);
+        final int high = getNodeHigh(node);
+        final int positive = ConditionProgram.instruction(ConditionProgram.POSITIVE_LITERAL, variable);
+        final int negative = ConditionProgram.instruction(ConditionProgram.NEGATIVE_LITERAL, variable);
+        final int and = ConditionProgram.instruction(ConditionProgram.AND, 2);
+        final int or = ConditionProgram.instruction(ConditionProgram.OR, 2);
+        if ((low == FALSE) && (high == TRUE)) {
+            addTask(tasks, INSTRUCTION_TASK, positive);
+        } else if ((low == TRUE) && (high == FALSE)) {
+            addTask(tasks, INSTRUCTION_TASK, negative);
+        } else if ((low == FALSE) || (low == TRUE)) {
+            addTask(tasks, INSTRUCTION_TASK, low == FALSE ? and : or);
+            addTask(tasks, NODE_TASK, high);
+            addTask(tasks, INSTRUCTION_TASK, low == FALSE ? positive : negative);
+        } else if ((high == FALSE) || (high == TRUE)) {
+            addTask(tasks, INSTRUCTION_TASK, high == FALSE ? and : or);
+            addTask(tasks, NODE_TASK, low);
+            addTask(tasks, INSTRUCTION_TASK, high == FALSE ? negative : positive);
+        } else {
+            addTask(tasks, INSTRUCTION_TASK, or);
+            addTask(tasks, INSTRUCTION_TASK, and);
+            addTask(tasks, NODE_TASK, low);
+            addTask(tasks, INSTRUCTION_TASK, negative);
+            addTask(tasks, INSTRUCTION_TASK, and);
+            addTask(tasks, NODE_TASK, high);
+            addTask(tasks, INSTRUCTION_TASK, positive);
+        }
+    }
+
+    private static void addTask(IntArrayList tasks, int task, int value) {
+        tasks.add(value);
+        tasks.add(task);
+    }
+
+    @Override
+    public <T extends Node> T getCondition(T node) {
+        if (node != null) {
+            synchronized (lock) {
+                final int root = findRoot(node);
+                if ((root >= 0) && rootToCondition.containsKey(root)) {
+                    return node;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Builds the BDD of a node without adding variables or nodes. Returns -1 if the result is not in the table.
+    private int findRoot(Node node) {
+        for (final Literal literal : node.getUniqueLiterals()) {
+            if (getVariableIndex(String.valueOf(literal.var)) < 0) {
+                return -1;
+            }
+        }
+        virtualNodes = new IntArrayList();
+        virtualTable = new HashMap<>();
+        try {
+            final int root = fromNode(node);
+            return root < nodeCount ? root : -1;
+        } finally {
+            virtualNodes = null;
+            virtualTable = null;
+        }
+    }
+
+    @Override
+    public int getIndexSynced(Node node) {
+        if (node == null) {
+            return -1;
+        }
+        synchronized (lock) {
+            return getConditionIndex(fromNode(node));
+        }
+    }
+
+    @Override
+    public int getIndex(Node node) {
+        return getIndexSynced(node);
+    }
+
+    @Override
+    public int putIndex(Node node) {
+        synchronized (lock) {
+            return addCondition(fromNode(node));
+        }
+    }
+
+    @Override
+    public void putConditionSynced(Node node) {
+        getIndexSynced(node);
+    }
+
+    @Override
+    public void putCondition(Node node) {
+        getIndexSynced(node);
+    }
+
+    @Override
+    public int transferCondition(int index, NodeDictionary target) {
+        if (!(target instanceof BDDNodeDictionary)) {
+            return super.transferCondition(index, target);
+        }
+        final BDDNodeDictionary bddTarget = (BDDNodeDictionary) target;
+        final Int2IntOpenHashMap nodeMap = new Int2IntOpenHashMap();
+        nodeMap.put(FALSE, FALSE);
+        nodeMap.put(TRUE, TRUE);
+        final IntArrayList stack = new IntArrayList();
+        stack.add(conditionRoots[index]);
+        while (!stack.isEmpty()) {
+            final int node = stack.topInt();
+            if (nodeMap.containsKey(node)) {
+                stack.popInt();
+                continue;
+            }
+            final int low = getNodeLow(node);
+            final int high = getNodeHigh(node);
+            if (!nodeMap.containsKey(low)) {
+                stack.add(low);
+            } else if (!nodeMap.containsKey(high)) {
+                stack.add(high);
+            } else {
+                stack.popInt();
+                nodeMap.put(
+                        node, bddTarget.putNode(getNodeVariable(node), nodeMap.get(low), nodeMap.get(high)));
+            }
+        }
+        synchronized (bddTarget.lock) {
+            return bddTarget.getConditionIndex(nodeMap.get(conditionRoots[index]));
+        }
+    }
+
+    @Override
+    public int getConjunctionIndex(int index, Node node) {
+        synchronized (lock) {
+            return getConditionIndex(apply(AND, conditionRoots[index], fromNode(node)));
+        }
+    }
+
+    @Override
+    public int getDisjunctionIndex(int index, Node node) {
+        synchronized (lock) {
+            return getConditionIndex(apply(OR, conditionRoots[index], fromNode(node)));
+        }
+    }
+
+    @Override
+    public boolean evaluate(int index, VariableAssignment assignment) {
+        final int[] currentNodes = nodes;
+        int node = conditionRoots[index];
+        while (node > TRUE) {
+            final int offset = 3 * node;
+            node = assignment.get(currentNodes[offset]) ? currentNodes[offset + 2] : currentNodes[offset + 1];
+        }
+        return node == TRUE;
+    }
+
+    @Override
+    public long evaluate(int index, AssignmentBatch batch) {
+        if (batch.hasConditionValue(index)) {
+            return batch.getConditionValue(index);
+        }
+        final int[] currentNodes = nodes;
+        final int root = conditionRoots[index];
+        long result = 0L;
+        for (int lane = 0; lane < batch.size(); lane++) {
+            int node = root;
+            while (node > TRUE) {
+                final int offset = 3 * node;
+                node = ((batch.getVariable(currentNodes[offset]) >>> lane) & 1L) != 0
+                        ? currentNodes[offset + 2]
+                        : currentNodes[offset + 1];
+            }
+            if (node == TRUE) {
+                result |= 1L << lane;
+            }
+        }
+        batch.setConditionValue(index, result);
+        return result;
+    }
+
+    @Override
+    public void resetTruthValues(VariableAssignment assignment, int variableIndex) {
+        assignment.clearTruthValues();
+    }
+
+    private int getConditionIndex(int root) {
+        final int index = rootToCondition.get(root);
+        return index >= 0 ? index : addCondition(root);
+    }
+
+    private int addCondition(int root) {
+        int[] roots = conditionRoots;
+        if (conditionCount == roots.length) {
+            roots = Arrays.copyOf(roots, 2 * conditionCount);
+        }
+        roots[conditionCount] = root;
+        rootToCondition.putIfAbsent(root, conditionCount);
+        conditionRoots = roots;
+        return conditionCount++;
+    }
+
+    private int fromNode(Node node) {
+        final int[] program = ConditionProgram.compile(
+                node,
+                var -> virtualNodes != null ? getVariableIndex(String.valueOf(var)) : putVariable(String.valueOf(var)),
+                condition -> -1);
+        final IntArrayList stack = new IntArrayList();
+        for (final int instruction : program) {
+            final int operand = ConditionProgram.operand(instruction);
+            switch (ConditionProgram.opcode(instruction)) {
+                case ConditionProgram.POSITIVE_LITERAL:
+                    stack.add(makeNode(operand, FALSE, TRUE));
+                    break;
+                case ConditionProgram.NEGATIVE_LITERAL:
+                    stack.add(makeNode(operand, TRUE, FALSE));
+                    break;
+                case ConditionProgram.NOT:
+                    stack.add(apply(NOT, stack.popInt(), TRUE));
+                    break;
+                case ConditionProgram.AND: {
+                    int result = TRUE;
+                    for (int i = 0; i < operand; i++) {
+                        result = apply(AND, result, stack.popInt());
+                    }
+                    stack.add(result);
+                    break;
+                }
+                case ConditionProgram.OR: {
+                    int result = FALSE;
+                    for (int i = 0; i < operand; i++) {
+                        result = apply(OR, result, stack.popInt());
+                    }
+                    stack.add(result);
+                    break;
+                }
+                case ConditionProgram.IMPLIES: {
+                    final int consequent = stack.popInt();
+                    final int antecedent = stack.popInt();
+                    stack.add(apply(OR, apply(NOT, antecedent, TRUE), consequent));
+                    break;
+                }
+                case ConditionProgram.EQUALS: {
+                    final int right = stack.popInt();
+                    final int left = stack.popInt();
+                    final int both = apply(AND, left, right);
+                    final int neither = apply(AND, apply(NOT, left, TRUE), apply(NOT, right, TRUE));
+                    stack.add(apply(OR, both, neither));
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException(String.valueOf(instruction));
+            }
+        }
+        return stack.popInt();
+    }
+
+    private Node toNode(int root, Int2ObjectOpenHashMap<Node> nodeMap) {
+        if (root == TRUE) {
+            return new And();
+        } else if (root == FALSE) {
+            return new Or();
+        }
+        final IntArrayList stack = new IntArrayList();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            final int node = stack.topInt();
+            if (nodeMap.containsKey(node)) {
+                stack.popInt();
+                continue;
+            }
+            final int low = getNodeLow(node);
+            final int high = getNodeHigh(node);
+            if ((low > TRUE) && !nodeMap.containsKey(low)) {
+                stack.add(low);
+            } else if ((high > TRUE) && !nodeMap.containsKey(high)) {
+                stack.add(high);
+            } else {
+                stack.popInt();
+                final String variable = getVariable(getNodeVariable(node));
+                final Node condition;
+                if (low == FALSE) {
+                    condition = (high == TRUE)
+                            ? new Literal(variable, true)
+                            : new And(new Literal(variable, true), nodeMap.get(high));
+                } else if (low == TRUE) {
+                    condition = (high == FALSE)
+                            ? new Literal(variable, false)
+                            : new Or(new Literal(variable, false), nodeMap.get(high));
+                } else if (high == FALSE) {
+                    condition = new And(new Literal(variable, false), nodeMap.get(low));
+                } else if (high == TRUE) {
+                    condition = new Or(new Literal(variable, true), nodeMap.get(low));
+                } else {
+                    condition = new Or(
+                            new And(new Literal(variable, true), nodeMap.get(high)),
+                            new And(new Literal(variable, false), nodeMap.get(low)));
+                }
+                nodeMap.put(node, condition);
+            }
+        }
+        return nodeMap.get(root);
+    }
+
+    private int makeNode(int variable, int low, int high) {
+        if (low == high) {
+            return low;
+        }
+        if (virtualNodes != null) {
+            return makeVirtualNode(variable, low, high);
+        }
+        int slot = hash(variable, low, high) & uniqueMask;
+        int[] currentNodes = nodes;
+        for (int node = uniqueTable[slot]; node >= 0; node = uniqueTable[slot]) {
+            final int offset = 3 * node;
+            if ((currentNodes[offset] == variable)
+                    && (currentNodes[offset + 1] == low)
+                    && (currentNodes[offset + 2] == high)) {
+                return node;
+            }
+            slot = (slot + 1) & uniqueMask;
+        }
+        final int node = nodeCount++;
+        if (3 * nodeCount > currentNodes.length) {
+            currentNodes = Arrays.copyOf(currentNodes, 2 * currentNodes.length);
+        }
+        final int offset = 3 * node;
+        currentNodes[offset] = variable;
+        currentNodes[offset + 1] = low;
+        currentNodes[offset + 2] = high;
+        nodes = currentNodes;
+        uniqueTable[slot] = node;
+        if (2 * nodeCount > uniqueTable.length) {
+            rehash();
+        }
+        return node;
+    }
+
+    private int makeVirtualNode(int variable, int low, int high) {
+        if ((low < nodeCount) && (high < nodeCount)) {
+            int slot = hash(variable, low, high) & uniqueMask;
+            final int[] currentNodes = nodes;
+            for (int node = uniqueTable[slot]; node >= 0; node = uniqueTable[slot]) {
+                final int offset = 3 * node;
+                if ((currentNodes[offset] == variable)
+                        && (currentNodes[offset + 1] == low)
+                        && (currentNodes[offset + 2] == high)) {
+                    return node;
+                }
+                slot = (slot + 1) & uniqueMask;
+            }
+        }
+        final NodeKey key = new NodeKey(variable, low, high);
+        final Integer virtualNode = virtualTable.get(key);
+        if (virtualNode != null) {
+            return virtualNode;
+        }
+        final int node = nodeCount + (virtualNodes.size() / 3);
+        virtualNodes.add(variable);
+        virtualNodes.add(low);
+        virtualNodes.add(high);
+        virtualTable.put(key, node);
+        return node;
+    }
+
+    private int field(int node, int field) {
+        return node < nodeCount ? nodes[3 * node + field] : virtualNodes.getInt(3 * (node - nodeCount) + field);
+    }
+
+    private void rehash() {
+        uniqueTable = new int[2 * uniqueTable.length];
+        Arrays.fill(uniqueTable, -1);
+        uniqueMask = uniqueTable.length - 1;
+        final int[] currentNodes = nodes;
+        for (int node = 2; node < nodeCount; node++) {
+            final int offset = 3 * node;
+            int slot = hash(currentNodes[offset], currentNodes[offset + 1], currentNodes[offset + 2]) & uniqueMask;
+            while (uniqueTable[slot] >= 0) {
+                slot = (slot + 1) & uniqueMask;
+            }
+            uniqueTable[slot] = node;
+        }
+    }
+
+    private static int hash(int a, int b, int c) {
+        int h = a * 0x9E3779B1;
+        h = (h ^ b) * 0x85EBCA6B;
+        h = (h ^ c) * 0xC2B2AE35;
+        return h ^ (h >>> 16);
+    }
+
+    private int apply(int operation, int a, int b) {
+        final IntArrayList stack = new IntArrayList();
+        int left = a;
+        int right = b;
+        int result;
+        call:
+        while (true) {
+            result = applyTerminal(operation, left, right);
+            if (result < 0) {
+                result = lookup(operation, left, right);
+            }
+            if (result < 0) {
+                stack.add(left);
+                stack.add(right);
+                stack.add(-1);
+                final int variable = Math.min(field(left, 0), field(right, 0));
+                left = cofactor(left, variable, false);
+                right = cofactor(right, variable, false);
+                continue;
+            }
+            while (!stack.isEmpty()) {
+                final int size = stack.size();
+                final int frameLeft = stack.getInt(size - 3);
+                final int frameRight = stack.getInt(size - 2);
+                final int variable = Math.min(field(frameLeft, 0), field(frameRight, 0));
+                if (stack.getInt(size - 1) < 0) {
+                    stack.set(size - 1, result);
+                    left = cofactor(frameLeft, variable, true);
+                    right = cofactor(frameRight, variable, true);
+                    continue call;
+                }
+                final int low = stack.getInt(size - 1);
+                stack.size(size - 3);
+                result = makeNode(variable, low, result);
+                store(operation, frameLeft, frameRight, result);
+            }
+            return result;
+        }
+    }
+
+    private int cofactor(int node, int variable, boolean value) {
+        if (field(node, 0) != variable) {
+            return node;
+        }
+        return value ? field(node, 2) : field(node, 1);
+    }
+
+    private static int applyTerminal(int operation, int left, int right) {
+        switch (operation) {
+            case AND:
+                if ((left == FALSE) || (right == FALSE)) {
+                    return FALSE;
+                } else if ((left == TRUE) || (left == right)) {
+                    return right;
+                } else if (right == TRUE) {
+                    return left;
+                }
+                return -1;
+            case OR:
+                if ((left == TRUE) || (right == TRUE)) {
+                    return TRUE;
+                } else if ((left == FALSE) || (left == right)) {
+                    return right;
+                } else if (right == FALSE) {
+                    return left;
+                }
+                return -1;
+            case NOT:
+                return left > TRUE ? -1 : TRUE - left;
+            default:
+                throw new IllegalArgumentException(String.valueOf(operation));
+        }
+    }
+
+    private int lookup(int operation, int left, int right) {
+        final int offset = 4 * (hash(operation, left, right) & CACHE_MASK);
+        if ((cache[offset] == operation) && (cache[offset + 1] == left) && (cache[offset + 2] == right)) {
+            return cache[offset + 3];
+        }
+        return -1;
+    }
+
+    private void store(int operation, int left, int right, int result) {
+        if (virtualNodes != null) {
+            return;
+        }
+        final int offset = 4 * (hash(operation, left, right) & CACHE_MASK);
+        cache[offset] = operation;
+        cache[offset + 1] = left;
+        cache[offset + 2] = right;
+        cache[offset + 3] = result;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+public class ChunkedArray<T> {
+
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private volatile Object[] chunks = new Object[0];
+
+    public T get(int index) {
+        final AtomicReferenceArray<T> chunk = getChunk(index >>> CHUNK_BITS);
+        return chunk != null ? chunk.get(index & CHUNK_MASK) : null;
+    }
+
+    public void set(int index, T element) {
+        createChunk(index >>> CHUNK_BITS).set(index & CHUNK_MASK, element);
+    }
+
+    public boolean compareAndSet(int index, T expectedElement, T element) {
+        return createChunk(index >>> CHUNK_BITS).compareAndSet(index & CHUNK_MASK, expectedElement, element);
+    }
+
+    public void clear() {
+        chunks = new Object[0];
+    }
+
+    public List<T> asList(IntSupplier size) {
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                return ChunkedArray.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size.getAsInt();
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private AtomicReferenceArray<T> getChunk(int chunkIndex) {
+        final Object[] currentChunks = chunks;
+        return chunkIndex < currentChunks.length ? (AtomicReferenceArray<T>) currentChunks[chunkIndex] : null;
+    }
+
+    private AtomicReferenceArray<T> createChunk(int chunkIndex) {
+        final AtomicReferenceArray<T> chunk = getChunk(chunkIndex);
+        return chunk != null ? chunk : addChunk(chunkIndex);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized AtomicReferenceArray<T> addChunk(int chunkIndex) {
+        Object[] currentChunks = chunks;
+        if (chunkIndex < currentChunks.length) {
+            return (AtomicReferenceArray<T>) currentChunks[chunkIndex];
+        }
+        currentChunks = Arrays.copyOf(currentChunks, Math.max(chunkIndex + 1, 2 * currentChunks.length));
+        for (int i = chunks.length; i < currentChunks.length; i++) {
+            currentChunks[i] = new AtomicReferenceArray<T>(CHUNK_SIZE);
+        }
+        chunks = currentChunks;
+        return (AtomicReferenceArray<T>) currentChunks[chunkIndex];
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+public class CommitAssignment implements VariableAssignment {
+
+    private final CommitReachability reachability;
+    private final int[] variableToCommit;
+    private final int commitId;
+    private final TruthValues truthValues;
+
+    public CommitAssignment(CommitReachability reachability, int[] variableToCommit, int commitId) {
+        this.reachability = reachability;
+        this.variableToCommit = variableToCommit;
+        this.commitId = commitId;
+        truthValues = new TruthValues();
+    }
+
+    public CommitAssignment(
+            CommitReachability reachability,
+            int[] variableToCommit,
+            int commitId,
+            CommitAssignment parent,
+            boolean moveTruthValues) {
+        this.reachability = reachability;
+        this.variableToCommit = variableToCommit;
+        this.commitId = commitId;
+        truthValues = new TruthValues(parent.truthValues, moveTruthValues);
+    }
+
+    public int getCommitId() {
+        return commitId;
+    }
+
+    @Override
+    public boolean get(int variableIndex) {
+        if (variableIndex >= variableToCommit.length) {
+            return false;
+        }
+        final int variableCommitId = variableToCommit[variableIndex];
+        return (variableCommitId >= 0) && reachability.isAncestor(variableCommitId, commitId);
+    }
+
+    @Override
+    public byte getTruthValue(int conditionIndex) {
+        return truthValues.get(conditionIndex);
+    }
+
+    @Override
+    public void setTruthValue(int conditionIndex, boolean value) {
+        truthValues.set(conditionIndex, value);
+    }
+
+    @Override
+    public boolean resetTruthValue(int conditionIndex) {
+        return truthValues.reset(conditionIndex);
+    }
+
+    @Override
+    public void clearTruthValues() {
+        truthValues.clear();
+    }
+}
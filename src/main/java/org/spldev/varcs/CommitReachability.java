@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import it.unimi.dsi.fastutil.ints.*;
+import it.unimi.dsi.fastutil.objects.*;
+import java.util.*;
+import org.roaringbitmap.*;
+import org.spldev.varcs.git.*;
+import org.spldev.varcs.structure.*;
+
+public class CommitReachability {
+
+    private static final int[] NO_POSITIONS = new int[0];
+
+    private final ArrayList<CommitNode> commits = new ArrayList<>();
+    private final Object2IntOpenHashMap<CommitNode> commitIds = new Object2IntOpenHashMap<>();
+    private final ArrayList<String> variables = new ArrayList<>();
+    private final Object2IntOpenHashMap<String> variableIds = new Object2IntOpenHashMap<>();
+
+    private final int[] chains;
+    private final int[] positions;
+    // Per commit and chain, the highest position of a reachable commit. The commit's own chain is implicit, so a
+    // commit that continues the chain of its only parent shares the parent's array.
+    private final int[][] reachablePositions;
+
+    public CommitReachability(CommitNode commitTree, GitUtils gitUtils) {
+        commitIds.defaultReturnValue(-1);
+        variableIds.defaultReturnValue(-1);
+        CommitTree.topologicalOrderStream(commitTree).forEach(commit -> {
+            final int commitId = commits.size();
+            commits.add(commit);
+            commitIds.put(commit, commitId);
+            final String variable = gitUtils.getVariable(commit).orElseThrow(NullPointerException::new);
+            variables.add(variable);
+            variableIds.put(variable, commitId);
+        });
+
+        final int commitCount = commits.size();
+        chains = new int[commitCount];
+        positions = new int[commitCount];
+        reachablePositions = new int[commitCount][];
+        int[] chainTails = new int[16];
+        int chainCount = 0;
+        for (int i = 0; i < commitCount; i++) {
+            final CommitNode commit = commits.get(i);
+            int chain = -1;
+            int firstParentId = -1;
+            boolean merged = false;
+            int[] reachable = NO_POSITIONS;
+            for (final CommitNode parent : commit.getParents()) {
+                final int parentId = commitIds.getInt(parent);
+                if (parentId < 0) {
+                    continue;
+                }
+                if ((chain < 0) && (chainTails[chains[parentId]] == parentId)) {
+                    chain = chains[parentId];
+                }
+                if (firstParentId < 0) {
+                    firstParentId = parentId;
+                    reachable = reachablePositions[parentId];
+                } else {
+                    reachable = max(reachable, reachablePositions[parentId]);
+                    merged = true;
+                }
+            }
+            if (chain < 0) {
+                chain = chainCount++;
+                if (chain == chainTails.length) {
+                    chainTails = Arrays.copyOf(chainTails, 2 * chain);
+                }
+                positions[i] = 0;
+            } else {
+                positions[i] = positions[chainTails[chain]] + 1;
+            }
+            chains[i] = chain;
+            chainTails[chain] = i;
+            if (merged) {
+                for (final CommitNode parent : commit.getParents()) {
+                    final int parentId = commitIds.getInt(parent);
+                    if (parentId >= 0) {
+                        reachable = include(reachable, chains[parentId], positions[parentId]);
+                    }
+                }
+            } else if ((firstParentId >= 0) && (chains[firstParentId] != chain)) {
+                reachable = include(reachable.clone(), chains[firstParentId], positions[firstParentId]);
+            }
+            reachablePositions[i] = reachable;
+        }
+    }
+
+    private static int[] include(int[] reachable, int chain, int position) {
+        if (reachable.length <= chain) {
+            final int oldLength = reachable.length;
+            reachable = Arrays.copyOf(reachable, chain + 1);
+            Arrays.fill(reachable, oldLength, chain + 1, -1);
+        }
+        if (reachable[chain] < position) {
+            reachable[chain] = position;
+        }
+        return reachable;
+    }
+
+    private static int[] max(int[] positions1, int[] positions2) {
+        if (positions1.length < positions2.length) {
+            final int[] temp = positions1;
+            positions1 = positions2;
+            positions2 = temp;
+        }
+        final int[] result = positions1.clone();
+        for (int i = 0; i < positions2.length; i++) {
+            if (positions2[i] > result[i]) {
+                result[i] = positions2[i];
+            }
+        }
+        return result;
+    }
+
+    public int getCommitCount() {
+        return commits.size();
+    }
+
+    public int getCommitId(CommitNode commit) {
+        return commitIds.getInt(commit);
+    }
+
+    public int getCommitId(String variable) {
+        return variableIds.getInt(variable);
+    }
+
+    // Unlike GitUtils, safe to call from concurrent workers.
+    public String getVariable(CommitNode commit) {
+        return variables.get(commitIds.getInt(commit));
+    }
+
+    public boolean isAncestor(int ancestorId, int commitId) {
+        final int chain = chains[ancestorId];
+        if (chain == chains[commitId]) {
+            return positions[ancestorId] <= positions[commitId];
+        }
+        final int[] reachable = reachablePositions[commitId];
+        return (chain < reachable.length) && (reachable[chain] >= positions[ancestorId]);
+    }
+
+    public RoaringBitmap getMergedAncestors(CommitNode commit) {
+        final RoaringBitmap mergedAncestors = new RoaringBitmap();
+        final Iterator<CommitNode> parents = commit.getParents().iterator();
+        if (!parents.hasNext()) {
+            return mergedAncestors;
+        }
+        final int firstParentId = getCommitId(parents.next());
+        final IntArrayList stack = new IntArrayList();
+        while (parents.hasNext()) {
+            stack.add(getCommitId(parents.next()));
+        }
+        while (!stack.isEmpty()) {
+            final int commitId = stack.popInt();
+            if (isAncestor(commitId, firstParentId) || !mergedAncestors.checkedAdd(commitId)) {
+                continue;
+            }
+            for (final CommitNode parent : commits.get(commitId).getParents()) {
+                stack.add(getCommitId(parent));
+            }
+        }
+        return mergedAncestors;
+    }
+}
@@ -27,6 +27,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -212,6 +213,55 @@ public class CommitTree {
         }
     }
 
+    private static class TopologicalOrderSpliterator implements Spliterator<CommitNode> {
+
+        final LinkedList<CommitNode> stack = new LinkedList<>();
+        final HashMap<CommitNode, Integer> remainingParents = new HashMap<>();
+
+        public TopologicalOrderSpliterator(CommitNode node) {
+            if (node != null) {
+                preOrderStream(node).forEach(commitNode -> {
+                    for (final CommitNode child : commitNode.getChildren()) {
+                        remainingParents.merge(child, 1, Integer::sum);
+                    }
+                });
+                stack.push(node);
+            }
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.IMMUTABLE;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super CommitNode> consumer) {
+            if (stack.isEmpty()) {
+                return false;
+            } else {
+                final CommitNode node = stack.pop();
+                consumer.accept(node);
+                final int top = stack.size();
+                for (final CommitNode child : node.getChildren()) {
+                    if (remainingParents.merge(child, -1, Integer::sum) == 0) {
+                        stack.add(stack.size() - top, child);
+                    }
+                }
+                return true;
+            }
+        }
+
+        @Override
+        public Spliterator<CommitNode> trySplit() {
+            return null;
+        }
+    }
+
     public static <T extends X, X extends Tree<X>> Stream<X> preOrderStream(T node) {
         return StreamSupport.stream(new PreOrderSpliterator<>(node), false);
     }
@@ -224,6 +274,10 @@ public class CommitTree {
         return StreamSupport.stream(new LevelOrderSpliterator<>(node), false);
     }
 
+    public static Stream<CommitNode> topologicalOrderStream(CommitNode node) {
+        return StreamSupport.stream(new TopologicalOrderSpliterator(node), false);
+    }
+
     private final GitUtils gitUtils;
 
     private LinkedHashMap<ObjectId, List<Ref>> variantRefMap = new LinkedHashMap<>();
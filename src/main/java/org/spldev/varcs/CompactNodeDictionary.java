@@ -0,0 +1,390 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import it.unimi.dsi.fastutil.ints.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import org.prop4j.*;
+
+public class CompactNodeDictionary extends NodeDictionary {
+
+    private static final int CACHE_BITS = 14;
+    private static final int CACHE_MASK = (1 << CACHE_BITS) - 1;
+
+    private static final class CachedNode {
+        private final Node node;
+        private final int index;
+
+        private CachedNode(Node node, int index) {
+            this.node = node;
+            this.index = index;
+        }
+    }
+
+    private final MappedProgramStore programStore;
+
+    private final Object lock = new Object();
+
+    private final IntArrayList hashes = new IntArrayList();
+    private int[] table = new int[1 << 12];
+    private int tableMask = table.length - 1;
+
+    private final CachedNode[] indexCache = new CachedNode[1 << CACHE_BITS];
+    private final CachedNode[] identityCache = new CachedNode[1 << CACHE_BITS];
+
+    public CompactNodeDictionary() {
+        this(new MappedProgramStore());
+    }
+
+    public CompactNodeDictionary(Path directory) throws IOException {
+        this(new MappedProgramStore(directory));
+    }
+
+    private CompactNodeDictionary(MappedProgramStore programStore) {
+        super(programStore);
+        this.programStore = programStore;
+    }
+
+    @Override
+    public NodeDictionary createEmpty() {
+        final CompactNodeDictionary nodeDictionary = new CompactNodeDictionary(programStore.createEmpty());
+        for (final String variable : getVariables()) {
+            nodeDictionary.putVariable(variable);
+        }
+        return nodeDictionary;
+    }
+
+    @Override
+    public void refreshVariableIndex() {}
+
+    @Override
+    public void clear() {
+        synchronized (lock) {
+            super.clear();
+            hashes.clear();
+            Arrays.fill(table, 0);
+            Arrays.fill(indexCache, null);
+            Arrays.fill(identityCache, null);
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (lock) {
+            super.close();
+            Arrays.fill(indexCache, null);
+            Arrays.fill(identityCache, null);
+        }
+    }
+
+    @Override
+    public ArrayList<Node> getConditions() {
+        final int conditionCount = getConditionCount();
+        final ArrayList<Node> conditions = new ArrayList<>(conditionCount);
+        final Int2ObjectOpenHashMap<Node> nodeMap = new Int2ObjectOpenHashMap<>();
+        for (int i = 0; i < conditionCount; i++) {
+            conditions.add(toNode(i, nodeMap));
+        }
+        return conditions;
+    }
+
+    @Override
+    public Node getCondition(int index) {
+        final CachedNode cachedNode = indexCache[index & CACHE_MASK];
+        if ((cachedNode != null) && (cachedNode.index == index)) {
+            return cachedNode.node;
+        }
+        final Node node = toNode(index, new Int2ObjectOpenHashMap<>());
+        remember(node, index);
+        return node;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Node> T getCondition(T node) {
+        if (node != null) {
+            final int[] program = compileExisting(node);
+            if (program != null) {
+                final int index;
+                synchronized (lock) {
+                    index = find(program, Arrays.hashCode(program));
+                }
+                if (index >= 0) {
+                    remember(node, index);
+                    return node;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int getIndex(Node node) {
+        if (node == null) {
+            return -1;
+        }
+        final int cachedIndex = getCachedIndex(node);
+        if (cachedIndex >= 0) {
+            return cachedIndex;
+        }
+        final int index = getProgramIndex(compile(node));
+        remember(node, index);
+        return index;
+    }
+
+    @Override
+    public int putIndex(Node node) {
+        final int[] program = compile(node);
+        final int index;
+        synchronized (lock) {
+            index = insert(program, Arrays.hashCode(program));
+        }
+        remember(node, index);
+        return index;
+    }
+
+    @Override
+    public int transferCondition(int index, NodeDictionary target) {
+        if (!(target instanceof CompactNodeDictionary)) {
+            return super.transferCondition(index, target);
+        }
+        final CompactNodeDictionary compactTarget = (CompactNodeDictionary) target;
+        final Int2IntOpenHashMap conditionMap = new Int2IntOpenHashMap();
+        final IntArrayList stack = new IntArrayList();
+        stack.add(index);
+        while (!stack.isEmpty()) {
+            final int current = stack.topInt();
+            if (conditionMap.containsKey(current)) {
+                stack.popInt();
+                continue;
+            }
+            final int[] program = getProgram(current);
+            boolean ready = true;
+            for (final int instruction : program) {
+                if (ConditionProgram.opcode(instruction) == ConditionProgram.CONDITION) {
+                    final int operand = ConditionProgram.operand(instruction);
+                    if (!conditionMap.containsKey(operand)) {
+                        stack.add(operand);
+                        ready = false;
+                    }
+                }
+            }
+            if (ready) {
+                stack.popInt();
+                for (int i = 0; i < program.length; i++) {
+                    final int instruction = program[i];
+                    final int operand = ConditionProgram.operand(instruction);
+                    switch (ConditionProgram.opcode(instruction)) {
+                        case ConditionProgram.POSITIVE_LITERAL:
+                        case ConditionProgram.NEGATIVE_LITERAL:
+                            program[i] = ConditionProgram.instruction(
+                                    ConditionProgram.opcode(instruction),
+                                    compactTarget.putVariable(getVariable(operand)));
+                            break;
+                        case ConditionProgram.CONDITION:
+                            program[i] =
+                                    ConditionProgram.instruction(ConditionProgram.CONDITION, conditionMap.get(operand));
+                            break;
+                        default:
+                            break;
+                    }
+                }
+                conditionMap.put(current, compactTarget.getProgramIndex(program));
+            }
+        }
+        return conditionMap.get(index);
+    }
+
+    @Override
+    public int getConjunctionIndex(int index, Node node) {
+        return getCombinedIndex(index, node, ConditionProgram.AND);
+    }
+
+    @Override
+    public int getDisjunctionIndex(int index, Node node) {
+        return getCombinedIndex(index, node, ConditionProgram.OR);
+    }
+
+    private int getCombinedIndex(int index, Node node, int opcode) {
+        final int nodeIndex = getCachedIndex(node);
+        final int[] operand = nodeIndex >= 0
+                ? new int[] {ConditionProgram.instruction(ConditionProgram.CONDITION, nodeIndex)}
+                : compile(node);
+        final int[] program = new int[operand.length + 2];
+        program[0] = ConditionProgram.instruction(ConditionProgram.CONDITION, index);
+        System.arraycopy(operand, 0, program, 1, operand.length);
+        program[program.length - 1] = ConditionProgram.instruction(opcode, 2);
+        return getProgramIndex(program);
+    }
+
+    private int[] compile(Node node) {
+        return ConditionProgram.compile(node, var -> putVariable(String.valueOf(var)), this::getCachedIndex);
+    }
+
+    private int[] compileExisting(Node node) {
+        final boolean[] missingVariable = new boolean[1];
+        final int[] program = ConditionProgram.compile(
+                node,
+                var -> {
+                    final int variableIndex = getVariableIndex(String.valueOf(var));
+                    if (variableIndex < 0) {
+                        missingVariable[0] = true;
+                        return 0;
+                    }
+                    return variableIndex;
+                },
+                this::getCachedIndex);
+        return missingVariable[0] ? null : program;
+    }
+
+    private int getProgramIndex(int[] program) {
+        final int hash = Arrays.hashCode(program);
+        synchronized (lock) {
+            final int index = find(program, hash);
+            return index >= 0 ? index : insert(program, hash);
+        }
+    }
+
+    private int find(int[] program, int hash) {
+        final ProgramStore programs = getPrograms();
+        for (int slot = hash & tableMask; table[slot] != 0; slot = (slot + 1) & tableMask) {
+            final int index = table[slot] - 1;
+            if ((hashes.getInt(index) == hash) && programs.equals(index, program)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private int insert(int[] program, int hash) {
+        final int index = addProgram(program);
+        hashes.add(hash);
+        if (2 * hashes.size() > table.length) {
+            rehash();
+        } else {
+            putSlot(index, hash);
+        }
+        return index;
+    }
+
+    private void putSlot(int index, int hash) {
+        int slot = hash & tableMask;
+        while (table[slot] != 0) {
+            slot = (slot + 1) & tableMask;
+        }
+        table[slot] = index + 1;
+    }
+
+    private void rehash() {
+        table = new int[2 * table.length];
+        tableMask = table.length - 1;
+        for (int i = 0; i < hashes.size(); i++) {
+            putSlot(i, hashes.getInt(i));
+        }
+    }
+
+    private int getCachedIndex(Node node) {
+        final CachedNode cachedNode = identityCache[System.identityHashCode(node) & CACHE_MASK];
+        return (cachedNode != null) && (cachedNode.node == node) ? cachedNode.index : -1;
+    }
+
+    private void remember(Node node, int index) {
+        final CachedNode cachedNode = new CachedNode(node, index);
+        identityCache[System.identityHashCode(node) & CACHE_MASK] = cachedNode;
+        indexCache[index & CACHE_MASK] = cachedNode;
+    }
+
+    private Node toNode(int index, Int2ObjectOpenHashMap<Node> nodeMap) {
+        final ArrayList<Node> values = new ArrayList<>();
+        final IntArrayList frames = new IntArrayList();
+        int[] program = getProgram(index);
+        int current = index;
+        int pc = 0;
+        while (true) {
+            if (pc == program.length) {
+                final Node node = values.remove(values.size() - 1);
+                nodeMap.put(current, node);
+                if (frames.isEmpty()) {
+                    return node;
+                }
+                values.add(node);
+                pc = frames.popInt();
+                current = frames.popInt();
+                program = getProgram(current);
+                continue;
+            }
+            final int instruction = program[pc++];
+            final int operand = ConditionProgram.operand(instruction);
+            switch (ConditionProgram.opcode(instruction)) {
+                case ConditionProgram.POSITIVE_LITERAL:
+                    values.add(new Literal(getVariable(operand), true));
+                    break;
+                case ConditionProgram.NEGATIVE_LITERAL:
+                    values.add(new Literal(getVariable(operand), false));
+                    break;
+                case ConditionProgram.CONDITION: {
+                    final Node node = nodeMap.get(operand);
+                    if (node != null) {
+                        values.add(node);
+                    } else {
+                        frames.add(current);
+                        frames.add(pc);
+                        current = operand;
+                        program = getProgram(current);
+                        pc = 0;
+                    }
+                    break;
+                }
+                case ConditionProgram.NOT:
+                    values.add(new Not(values.remove(values.size() - 1)));
+                    break;
+                case ConditionProgram.AND:
+                    values.add(new And(popChildren(values, operand)));
+                    break;
+                case ConditionProgram.OR:
+                    values.add(new Or(popChildren(values, operand)));
+                    break;
+                case ConditionProgram.IMPLIES: {
+                    final Node[] children = popChildren(values, 2);
+                    values.add(new Implies(children[0], children[1]));
+                    break;
+                }
+                case ConditionProgram.EQUALS: {
+                    final Node[] children = popChildren(values, 2);
+                    values.add(new Equals(children[0], children[1]));
+                    break;
+                }
+                default:
+                    throw new IllegalStateException(String.valueOf(instruction));
+            }
+        }
+    }
+
+    private static Node[] popChildren(ArrayList<Node> values, int count) {
+        final Node[] children = new Node[count];
+        for (int i = count - 1; i >= 0; i--) {
+            children[i] = values.remove(values.size() - 1);
+        }
+        return children;
+    }
+}
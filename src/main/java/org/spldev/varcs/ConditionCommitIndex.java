@@ -0,0 +1,219 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import it.unimi.dsi.fastutil.ints.*;
+import it.unimi.dsi.fastutil.objects.*;
+import java.util.*;
+import java.util.stream.*;
+import org.roaringbitmap.*;
+import org.spldev.varcs.git.*;
+import org.spldev.varcs.structure.*;
+
+public class ConditionCommitIndex {
+
+    private final ArrayList<CommitNode> commits;
+    private final Object2IntOpenHashMap<CommitNode> commitIds = new Object2IntOpenHashMap<>();
+    private final RoaringBitmap allCommits;
+    private final RoaringBitmap[] conditionCommits;
+
+    public ConditionCommitIndex(CommitNode commitTree, GitUtils gitUtils, NodeDictionary nodeDictionary) {
+        commits = CommitTree.topologicalOrderStream(commitTree).collect(Collectors.toCollection(ArrayList::new));
+        commitIds.defaultReturnValue(-1);
+        for (int i = 0; i < commits.size(); i++) {
+            commitIds.put(commits.get(i), i);
+        }
+        allCommits = new RoaringBitmap();
+        allCommits.add(0L, commits.size());
+
+        final RoaringBitmap[] variableCommits = new RoaringBitmap[nodeDictionary.getVariableCount()];
+        final RoaringBitmap emptyBitmap = new RoaringBitmap();
+        Arrays.fill(variableCommits, emptyBitmap);
+        final RoaringBitmap[] descendants = new RoaringBitmap[commits.size()];
+        for (int i = commits.size() - 1; i >= 0; i--) {
+            final CommitNode commit = commits.get(i);
+            final RoaringBitmap commitDescendants = RoaringBitmap.bitmapOf(i);
+            for (final CommitNode child : commit.getChildren()) {
+                final int childId = commitIds.getInt(child);
+                if (childId >= 0) {
+                    commitDescendants.or(descendants[childId]);
+                }
+            }
+            commitDescendants.runOptimize();
+            descendants[i] = commitDescendants;
+            final String variable = gitUtils.getVariable(commit).orElseThrow(NullPointerException::new);
+            final int variableIndex = nodeDictionary.getVariableIndex(variable);
+            if (variableIndex >= 0) {
+                variableCommits[variableIndex] = commitDescendants;
+            }
+        }
+
+        conditionCommits = (nodeDictionary instanceof BDDNodeDictionary)
+                ? getConditionCommits((BDDNodeDictionary) nodeDictionary, variableCommits)
+                : getConditionCommits(nodeDictionary, variableCommits);
+    }
+
+    private RoaringBitmap[] getConditionCommits(NodeDictionary nodeDictionary, RoaringBitmap[] variableCommits) {
+        final RoaringBitmap[] conditionCommits = new RoaringBitmap[nodeDictionary.getConditionCount()];
+        final RoaringBitmap emptyBitmap = new RoaringBitmap();
+        final ArrayList<RoaringBitmap> stack = new ArrayList<>();
+        for (int i = 0; i < conditionCommits.length; i++) {
+            for (final int instruction : nodeDictionary.getProgram(i)) {
+                final int operand = ConditionProgram.operand(instruction);
+                switch (ConditionProgram.opcode(instruction)) {
+                    case ConditionProgram.POSITIVE_LITERAL:
+                        stack.add(variableCommits[operand]);
+                        break;
+                    case ConditionProgram.NEGATIVE_LITERAL:
+                        stack.add(RoaringBitmap.andNot(allCommits, variableCommits[operand]));
+                        break;
+                    case ConditionProgram.CONDITION:
+                        stack.add(conditionCommits[operand]);
+                        break;
+                    case ConditionProgram.NOT:
+                        stack.add(RoaringBitmap.andNot(allCommits, pop(stack)));
+                        break;
+                    case ConditionProgram.AND: {
+                        RoaringBitmap result = allCommits;
+                        for (int j = 0; j < operand; j++) {
+                            result = RoaringBitmap.and(result, pop(stack));
+                        }
+                        stack.add(result);
+                        break;
+                    }
+                    case ConditionProgram.OR: {
+                        RoaringBitmap result = emptyBitmap;
+                        for (int j = 0; j < operand; j++) {
+                            result = RoaringBitmap.or(result, pop(stack));
+                        }
+                        stack.add(result);
+                        break;
+                    }
+                    case ConditionProgram.IMPLIES: {
+                        final RoaringBitmap consequent = pop(stack);
+                        final RoaringBitmap antecedent = pop(stack);
+                        stack.add(RoaringBitmap.or(RoaringBitmap.andNot(allCommits, antecedent), consequent));
+                        break;
+                    }
+                    case ConditionProgram.EQUALS: {
+                        final RoaringBitmap right = pop(stack);
+                        final RoaringBitmap left = pop(stack);
+                        stack.add(RoaringBitmap.andNot(allCommits, RoaringBitmap.xor(left, right)));
+                        break;
+                    }
+                    default:
+                        throw new IllegalStateException(String.valueOf(instruction));
+                }
+            }
+            final RoaringBitmap result = pop(stack);
+            result.runOptimize();
+            conditionCommits[i] = result;
+        }
+        return conditionCommits;
+    }
+
+    private RoaringBitmap[] getConditionCommits(BDDNodeDictionary nodeDictionary, RoaringBitmap[] variableCommits) {
+        final RoaringBitmap[] conditionCommits = new RoaringBitmap[nodeDictionary.getConditionCount()];
+        final Int2ObjectOpenHashMap<RoaringBitmap> nodeCommits = new Int2ObjectOpenHashMap<>();
+        nodeCommits.put(BDDNodeDictionary.FALSE, new RoaringBitmap());
+        nodeCommits.put(BDDNodeDictionary.TRUE, allCommits);
+        final IntArrayList stack = new IntArrayList();
+        for (int i = 0; i < conditionCommits.length; i++) {
+            final int root = nodeDictionary.getRoot(i);
+            stack.add(root);
+            while (!stack.isEmpty()) {
+                final int node = stack.topInt();
+                if (nodeCommits.containsKey(node)) {
+                    stack.popInt();
+                    continue;
+                }
+                final int low = nodeDictionary.getNodeLow(node);
+                final int high = nodeDictionary.getNodeHigh(node);
+                if (!nodeCommits.containsKey(low)) {
+                    stack.add(low);
+                } else if (!nodeCommits.containsKey(high)) {
+                    stack.add(high);
+                } else {
+                    stack.popInt();
+                    final RoaringBitmap commits = variableCommits[nodeDictionary.getNodeVariable(node)];
+                    final RoaringBitmap result = RoaringBitmap.or(
+                            RoaringBitmap.and(commits, nodeCommits.get(high)),
+                            RoaringBitmap.andNot(nodeCommits.get(low), commits));
+                    result.runOptimize();
+                    nodeCommits.put(node, result);
+                }
+            }
+            conditionCommits[i] = nodeCommits.get(root);
+        }
+        return conditionCommits;
+    }
+
+    private static RoaringBitmap pop(ArrayList<RoaringBitmap> stack) {
+        return stack.remove(stack.size() - 1);
+    }
+
+    public int getCommitCount() {
+        return commits.size();
+    }
+
+    public CommitNode getCommit(int commitId) {
+        return commits.get(commitId);
+    }
+
+    public int getCommitId(CommitNode commit) {
+        return commitIds.getInt(commit);
+    }
+
+    public RoaringBitmap getCommits(int conditionIndex) {
+        return conditionCommits[conditionIndex];
+    }
+
+    public boolean isActive(int conditionIndex, CommitNode commit) {
+        final int commitId = commitIds.getInt(commit);
+        return (commitId >= 0) && conditionCommits[conditionIndex].contains(commitId);
+    }
+
+    public long countActive(ConditionalNode node) {
+        return conditionCommits[node.getCondition()].getLongCardinality();
+    }
+
+    public long countActive(Collection<? extends ConditionalNode> nodes) {
+        long count = 0;
+        for (final ConditionalNode node : nodes) {
+            count += countActive(node);
+        }
+        return count;
+    }
+
+    public long countActiveData(FileNode<?> fileNode) {
+        final Int2IntOpenHashMap conditionCounts = new Int2IntOpenHashMap();
+        for (final DataNode<?> dataNode : fileNode.getDataNodes()) {
+            conditionCounts.addTo(dataNode.getCondition(), 1);
+        }
+        final RoaringBitmap fileCommits = conditionCommits[fileNode.getCondition()];
+        long count = 0;
+        for (final Int2IntMap.Entry entry : conditionCounts.int2IntEntrySet()) {
+            count += (long) entry.getIntValue()
+                    * RoaringBitmap.andCardinality(fileCommits, conditionCommits[entry.getIntKey()]);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import it.unimi.dsi.fastutil.ints.*;
+import java.util.*;
+import java.util.function.*;
+import org.prop4j.*;
+
+public final class ConditionProgram {
+
+    static final int OPCODE_BITS = 3;
+    static final int OPCODE_MASK = (1 << OPCODE_BITS) - 1;
+
+    static final int POSITIVE_LITERAL = 0;
+    static final int NEGATIVE_LITERAL = 1;
+    static final int CONDITION = 2;
+    static final int NOT = 3;
+    static final int AND = 4;
+    static final int OR = 5;
+    static final int IMPLIES = 6;
+    static final int EQUALS = 7;
+
+    private static class StackEntry {
+        private final Node node;
+        private int index = 0;
+
+        public StackEntry(Node node) {
+            this.node = node;
+        }
+    }
+
+    private ConditionProgram() {}
+
+    static int instruction(int opcode, int operand) {
+        return (operand << OPCODE_BITS) | opcode;
+    }
+
+    static int opcode(int instruction) {
+        return instruction & OPCODE_MASK;
+    }
+
+    static int operand(int instruction) {
+        return instruction >>> OPCODE_BITS;
+    }
+
+    public static int[] compile(Node root, ToIntFunction<Object> variableIndex, ToIntFunction<Node> conditionIndex) {
+        final IntArrayList program = new IntArrayList();
+        final ArrayDeque<StackEntry> stack = new ArrayDeque<>();
+        stack.push(new StackEntry(root));
+
+        while (!stack.isEmpty()) {
+            final StackEntry entry = stack.peek();
+            final Node node = entry.node;
+            if (node instanceof Literal) {
+                final Literal literal = (Literal) node;
+                program.add(instruction(
+                        literal.positive ? POSITIVE_LITERAL : NEGATIVE_LITERAL,
+                        variableIndex.applyAsInt(literal.var)));
+                stack.pop();
+                continue;
+            }
+            if ((node != root) && (entry.index == 0)) {
+                final int index = conditionIndex.applyAsInt(node);
+                if (index >= 0) {
+                    program.add(instruction(CONDITION, index));
+                    stack.pop();
+                    continue;
+                }
+            }
+            final Node[] children = node.getChildren();
+            if (entry.index < children.length) {
+                stack.push(new StackEntry(children[entry.index++]));
+            } else {
+                if (node instanceof And) {
+                    program.add(instruction(AND, children.length));
+                } else if (node instanceof Or) {
+                    program.add(instruction(OR, children.length));
+                } else if (node instanceof Not) {
+                    program.add(instruction(NOT, 0));
+                } else if (node instanceof Implies) {
+                    program.add(instruction(IMPLIES, 0));
+                } else if (node instanceof Equals) {
+                    program.add(instruction(EQUALS, 0));
+                } else {
+                    throw new IllegalArgumentException(node.getClass().getName());
+                }
+                stack.pop();
+            }
+        }
+
+        return program.toIntArray();
+    }
+}
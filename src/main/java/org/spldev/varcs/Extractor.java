@@ -29,6 +29,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 import org.eclipse.jgit.api.Git;
 import org.prop4j.And;
@@ -49,9 +50,11 @@ public class Extractor {
     private final GitUtils gitUtils;
 
     private CommitNode commitTree;
+    private CommitReachability commitReachability;
     private Node formula;
 
     private FileMap fileMap = new FileMap();
+    private int compactionInterval = LineExtractor.DEFAULT_COMPACTION_INTERVAL;
 
     public Extractor(Git git) throws IOException {
         gitUtils = new GitUtils(git);
@@ -71,6 +74,14 @@ public class Extractor {
 
     public void setCommitTree(CommitNode commitTree) {
         this.commitTree = commitTree;
+        commitReachability = null;
+    }
+
+    public CommitReachability getCommitReachability() {
+        if (commitReachability == null) {
+            commitReachability = new CommitReachability(commitTree, gitUtils);
+        }
+        return commitReachability;
     }
 
     public void testTreeConsistency() throws Exception {
@@ -138,7 +149,15 @@ public class Extractor {
     }
 
     public void extractLines() throws Exception {
-        CommitTree.levelOrderStream(commitTree).forEach(new LineExtractor(gitUtils, fileMap, formula));
+        final int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        final ForkJoinPool executor = new ForkJoinPool(parallelism);
+        try (LineExtractor lineExtractor =
+                new LineExtractor(gitUtils, fileMap, formula, getCommitReachability(), executor)) {
+            lineExtractor.setCompactionInterval(compactionInterval);
+            lineExtractor.extractAll(commitTree, parallelism);
+        } finally {
+            executor.shutdown();
+        }
     }
 
     private int count = 0;
@@ -146,7 +165,8 @@ public class Extractor {
     public void extractAnnotations() {
         Main.tabFormatter.incTabLevel();
         Logger.logInfo("Extracting...");
-        CommitTree.levelOrderStream(commitTree).forEach(new AnnotationExtractor(gitUtils, fileMap, formula));
+        CommitTree.topologicalOrderStream(commitTree)
+                .forEach(new AnnotationExtractor(gitUtils, fileMap, formula, getCommitReachability()));
         Logger.logInfo("Converting...");
         Main.tabFormatter.incTabLevel();
         final Collection<TextFileNode> values = fileMap.getTextFileMap().values();
@@ -201,7 +221,15 @@ public class Extractor {
         this.formula = formula;
     }
 
+    // Number of extracted commits between compactions of the condition dictionary. Zero disables compaction.
+    public void setCompactionInterval(int compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
     public void setFileMap(FileMap fileMap) {
+        if (this.fileMap != fileMap) {
+            this.fileMap.close();
+        }
         this.fileMap = fileMap;
     }
 }
@@ -20,13 +20,18 @@
  */
 package org.spldev.varcs;
 
+import java.io.*;
 import java.util.*;
 import java.util.stream.*;
+import org.spldev.varcs.git.*;
 import org.spldev.varcs.structure.*;
 
-public class FileMap {
+public class FileMap implements Closeable {
 
     private NodeDictionary nodeDictionary = new NodeDictionary();
+    private final LinePool linePool = new LinePool();
+    private final BlobStore blobStore = new BlobStore(null);
+    private FileSpill fileSpill;
 
     private final HashMap<String, TextFileNode> textFileMap = new HashMap<>();
     private final HashMap<String, BinaryFileNode> binaryFileMap = new HashMap<>();
@@ -36,7 +41,36 @@ public class FileMap {
     }
 
     public void setConditionDictionary(NodeDictionary nodeDictionary) {
+        final NodeDictionary oldNodeDictionary = this.nodeDictionary;
         this.nodeDictionary = nodeDictionary;
+        if (oldNodeDictionary != nodeDictionary) {
+            oldNodeDictionary.close();
+        }
+    }
+
+    public LinePool getLinePool() {
+        return linePool;
+    }
+
+    public BlobStore getBlobStore() {
+        return blobStore;
+    }
+
+    public void setFileSpill(FileSpill fileSpill) {
+        this.fileSpill = fileSpill;
+        for (final TextFileNode fileNode : textFileMap.values()) {
+            fileSpill.register(fileNode);
+        }
+    }
+
+    public boolean hasFileSpill() {
+        return fileSpill != null;
+    }
+
+    public void spillColdFiles() {
+        if (fileSpill != null) {
+            fileSpill.evict();
+        }
     }
 
     public HashMap<String, BinaryFileNode> getBinaryFileMap() {
@@ -48,17 +82,34 @@ public class FileMap {
     }
 
     public void refreshNodeDictionary() {
-        final NodeDictionary newNodeDictionary = new NodeDictionary();
-        final int[] newIndex = new int[nodeDictionary.getConditions().size()];
+        remapConditions(nodeDictionary.createEmpty());
+    }
+
+    public void compactNodeDictionary() {
+        final NodeDictionary newNodeDictionary = nodeDictionary.createEmpty();
+        for (final String variable : nodeDictionary.getVariables()) {
+            newNodeDictionary.putVariable(variable);
+        }
+        remapConditions(newNodeDictionary);
+    }
+
+    private void remapConditions(NodeDictionary newNodeDictionary) {
+        final int[] newIndex = new int[nodeDictionary.getConditionCount()];
         Arrays.fill(newIndex, -1);
 
         for (final TextFileNode fileNode : textFileMap.values()) {
             fileNode.setCondition(getNewIndex(newNodeDictionary, newIndex, fileNode.getCondition()));
-            for (final LineNode lineNode : fileNode.getDataNodes()) {
-                lineNode.setCondition(getNewIndex(newNodeDictionary, newIndex, lineNode.getCondition()));
-                final int presenceCondition = lineNode.getPresenceCondition();
+            if ((fileSpill != null)
+                    && fileSpill.remapConditions(
+                            fileNode, condition -> getNewIndex(newNodeDictionary, newIndex, condition))) {
+                continue;
+            }
+            final int lineCount = fileNode.getLineCount();
+            for (int i = 0; i < lineCount; i++) {
+                fileNode.setLineCondition(i, getNewIndex(newNodeDictionary, newIndex, fileNode.getLineCondition(i)));
+                final int presenceCondition = fileNode.getLinePresenceCondition(i);
                 if (presenceCondition >= 0) {
-                    lineNode.setPresenceCondition(getNewIndex(newNodeDictionary, newIndex, presenceCondition));
+                    fileNode.setLinePresenceCondition(i, getNewIndex(newNodeDictionary, newIndex, presenceCondition));
                 }
             }
         }
@@ -68,31 +119,32 @@ public class FileMap {
                 dataNode.setCondition(getNewIndex(newNodeDictionary, newIndex, dataNode.getCondition()));
             }
         }
-        nodeDictionary = newNodeDictionary;
+        setConditionDictionary(newNodeDictionary);
+        spillColdFiles();
     }
 
     private int getNewIndex(NodeDictionary newNodeDictionary, int[] newIndex, int oldConditionIndex) {
         int newConditionIndex = newIndex[oldConditionIndex];
         if (newConditionIndex < 0) {
-            newConditionIndex = newNodeDictionary.putIndex(nodeDictionary.getCondition(oldConditionIndex));
+            newConditionIndex = nodeDictionary.transferCondition(oldConditionIndex, newNodeDictionary);
             newIndex[oldConditionIndex] = newConditionIndex;
         }
         return newConditionIndex;
     }
 
-    public List<BinaryFileNode> getActiveBinaryFileNodes(Map<Object, Boolean> assignment) {
+    public List<BinaryFileNode> getActiveBinaryFileNodes(VariableAssignment assignment) {
         return binaryFileMap.values().stream()
                 .filter(f -> f.isActive(assignment, nodeDictionary))
                 .collect(Collectors.toList());
     }
 
-    public List<TextFileNode> getActiveTextFileNodes(Map<Object, Boolean> assignment) {
+    public List<TextFileNode> getActiveTextFileNodes(VariableAssignment assignment) {
         return textFileMap.values().stream()
                 .filter(f -> f.isActive(assignment, nodeDictionary))
                 .collect(Collectors.toList());
     }
 
-    public Optional<FileNode<?>> getFileNode(String path, Map<Object, Boolean> assignment) {
+    public Optional<FileNode<?>> getFileNode(String path, VariableAssignment assignment) {
         FileNode<?> fileNode = textFileMap.get(path);
         if ((fileNode != null) && fileNode.isActive(assignment, nodeDictionary)) {
             return Optional.of(fileNode);
@@ -116,9 +168,24 @@ public class FileMap {
         }
     }
 
+    public List<TextFileNode> getTextFileNodes() {
+        synchronized (textFileMap) {
+            return new ArrayList<>(textFileMap.values());
+        }
+    }
+
+    public List<BinaryFileNode> getBinaryFileNodes() {
+        synchronized (binaryFileMap) {
+            return new ArrayList<>(binaryFileMap.values());
+        }
+    }
+
     public void addTextNode(TextFileNode textNode) {
         synchronized (textFileMap) {
             textFileMap.put(textNode.getPath(), textNode);
+            if (fileSpill != null) {
+                fileSpill.register(textNode);
+            }
         }
     }
 
@@ -127,4 +194,14 @@ public class FileMap {
             binaryFileMap.put(binaryNode.getPath(), binaryNode);
         }
     }
+
+    @Override
+    public void close() {
+        if (fileSpill != null) {
+            fileSpill.close();
+        }
+        linePool.clear();
+        blobStore.clear();
+        nodeDictionary.close();
+    }
 }
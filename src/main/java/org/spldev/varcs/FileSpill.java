@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import de.featjar.util.logging.Logger;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+import org.spldev.varcs.io.*;
+import org.spldev.varcs.structure.*;
+
+public class FileSpill implements Closeable {
+
+    // Heap bytes per line besides its characters: the line's slots in the LineList columns and the String object.
+    // Pooled lines are counted for every file that contains them.
+    private static final long BYTES_PER_LINE = 64;
+
+    private final Path directory;
+    private final long memoryBudget;
+    private final LinePool linePool;
+
+    private final ConcurrentHashMap<String, Path> spillFiles = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SpilledConditions> spilledConditions = new ConcurrentHashMap<>();
+    // Loaded files from least to most recently touched, with their last size estimate. Guarded by this.
+    private final LinkedHashMap<TextFileNode, Long> loadedNodes = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<TextFileNode> touchedNodes = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger fileCounter = new AtomicInteger();
+
+    private volatile long clock = 0;
+    private long loadedSize = 0;
+    private int spillCount = 0;
+    private int loadCount = 0;
+
+    public FileSpill(Path directory, long memoryBudget, LinePool linePool) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.memoryBudget = memoryBudget;
+        this.linePool = linePool;
+    }
+
+    public synchronized void register(TextFileNode fileNode) {
+        fileNode.setFileSpill(this);
+        addLoaded(fileNode);
+    }
+
+    public long getClock() {
+        return clock;
+    }
+
+    public void touch(TextFileNode fileNode) {
+        touchedNodes.add(fileNode);
+    }
+
+    public void load(TextFileNode fileNode) {
+        synchronized (fileNode) {
+            if (!fileNode.isSpilled()) {
+                return;
+            }
+            try {
+                final TextFileNode spilledNode = TextFileIO.read(spillFiles.get(fileNode.getPath()), linePool);
+                final SpilledConditions conditions = spilledConditions.remove(fileNode.getPath());
+                if ((conditions != null) && conditions.remapped) {
+                    conditions.apply(spilledNode);
+                }
+                fileNode.reload(spilledNode);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        synchronized (this) {
+            addLoaded(fileNode);
+            loadCount++;
+        }
+    }
+
+    // Remaps the conditions of a spilled file without loading it. The lines are remapped once the file is loaded
+    // again. Returns false if the file is loaded, in which case the caller has to remap its lines itself.
+    public boolean remapConditions(TextFileNode fileNode, IntUnaryOperator remap) {
+        synchronized (fileNode) {
+            if (!fileNode.isSpilled()) {
+                return false;
+            }
+            final SpilledConditions conditions = spilledConditions.get(fileNode.getPath());
+            for (int i = 0; i < conditions.current.length; i++) {
+                conditions.current[i] = remap.applyAsInt(conditions.current[i]);
+            }
+            conditions.remapped = true;
+            return true;
+        }
+    }
+
+    public synchronized void evict() {
+        final long currentClock = clock++;
+        for (final Iterator<TextFileNode> iterator = touchedNodes.iterator(); iterator.hasNext(); ) {
+            final TextFileNode fileNode = iterator.next();
+            iterator.remove();
+            if (loadedNodes.containsKey(fileNode)) {
+                addLoaded(fileNode);
+            }
+        }
+        if (loadedSize <= memoryBudget) {
+            return;
+        }
+        final long targetSize = memoryBudget - (memoryBudget >> 2);
+        final Iterator<Map.Entry<TextFileNode, Long>> iterator = loadedNodes.entrySet().iterator();
+        while ((loadedSize > targetSize) && iterator.hasNext()) {
+            final Map.Entry<TextFileNode, Long> entry = iterator.next();
+            final TextFileNode fileNode = entry.getKey();
+            if (fileNode.getLastAccess() >= currentClock) {
+                break;
+            }
+            // Preprocessor conditions are not persisted in var files, so files that still hold some stay loaded.
+            if (fileNode.hasPendingPPConditions()) {
+                continue;
+            }
+            spill(fileNode);
+            iterator.remove();
+            loadedSize -= entry.getValue();
+        }
+        Logger.logDebug(String.format(
+                "Spilled %d, loaded %d text files, %d of %d in memory",
+                spillCount, loadCount, loadedNodes.size(), spillFiles.size()));
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            for (final Path file : spillFiles.values()) {
+                Files.deleteIfExists(file);
+            }
+            spillFiles.clear();
+            spilledConditions.clear();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+                if (!files.iterator().hasNext()) {
+                    Files.delete(directory);
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void addLoaded(TextFileNode fileNode) {
+        final long size = estimateSize(fileNode);
+        final Long oldSize = loadedNodes.put(fileNode, size);
+        loadedSize += (oldSize != null) ? size - oldSize : size;
+    }
+
+    private long estimateSize(TextFileNode fileNode) {
+        return (BYTES_PER_LINE * fileNode.getLoadedLineCount()) + fileNode.getLoadedCharacterCount();
+    }
+
+    private void spill(TextFileNode fileNode) {
+        final Path file = spillFiles.computeIfAbsent(
+                fileNode.getPath(),
+                path -> directory.resolve(String.format("file%d.text.var", fileCounter.getAndIncrement())));
+        try {
+            TextFileIO.write(fileNode, file);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        spilledConditions.put(fileNode.getPath(), new SpilledConditions(fileNode.getLoadedConditions()));
+        fileNode.unload();
+        spillCount++;
+    }
+
+    // The distinct conditions in a spill file, sorted, and the conditions they were remapped to since.
+    private static final class SpilledConditions {
+        private final int[] spilled;
+        private final int[] current;
+        private boolean remapped = false;
+
+        private SpilledConditions(int[] spilled) {
+            this.spilled = spilled;
+            current = spilled.clone();
+        }
+
+        private void apply(TextFileNode fileNode) {
+            final int lineCount = fileNode.getLineCount();
+            for (int i = 0; i < lineCount; i++) {
+                fileNode.setLineCondition(i, map(fileNode.getLineCondition(i)));
+                final int presenceCondition = fileNode.getLinePresenceCondition(i);
+                if (presenceCondition >= 0) {
+                    fileNode.setLinePresenceCondition(i, map(presenceCondition));
+                }
+            }
+        }
+
+        private int map(int condition) {
+            return current[Arrays.binarySearch(spilled, condition)];
+        }
+    }
+}
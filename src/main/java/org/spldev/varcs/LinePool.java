@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import java.lang.ref.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+public class LinePool {
+
+    // Lines are held weakly, so a line that only spilled files used can be collected.
+    private static final class LineReference extends WeakReference<String> {
+        private final int hash;
+
+        private LineReference(String line, ReferenceQueue<String> queue) {
+            super(line, queue);
+            hash = line.hashCode();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof LineReference)) {
+                return false;
+            }
+            final String line = get();
+            return (line != null) && line.equals(((LineReference) obj).get());
+        }
+    }
+
+    private final ConcurrentHashMap<LineReference, LineReference> lines = new ConcurrentHashMap<>();
+    private final ReferenceQueue<String> collectedLines = new ReferenceQueue<>();
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder requestedCharacters = new LongAdder();
+    private final LongAdder pooledCharacters = new LongAdder();
+
+    public String intern(String line) {
+        requestCount.increment();
+        requestedCharacters.add(line.length());
+        expungeCollectedLines();
+        final LineReference key = new LineReference(line, null);
+        while (true) {
+            LineReference reference = lines.get(key);
+            if (reference == null) {
+                final LineReference newReference = new LineReference(line, collectedLines);
+                reference = lines.putIfAbsent(newReference, newReference);
+                if (reference == null) {
+                    pooledCharacters.add(line.length());
+                    return line;
+                }
+            }
+            final String pooledLine = reference.get();
+            if (pooledLine != null) {
+                return pooledLine;
+            }
+            lines.remove(reference, reference);
+        }
+    }
+
+    private void expungeCollectedLines() {
+        Reference<? extends String> reference;
+        while ((reference = collectedLines.poll()) != null) {
+            lines.remove(reference, reference);
+        }
+    }
+
+    public int size() {
+        expungeCollectedLines();
+        return lines.size();
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getRequestedCharacters() {
+        return requestedCharacters.sum();
+    }
+
+    public long getPooledCharacters() {
+        return pooledCharacters.sum();
+    }
+
+    public double getDedupRatio() {
+        final long pooled = getPooledCharacters();
+        return pooled == 0 ? 1 : (double) getRequestedCharacters() / pooled;
+    }
+
+    public void clear() {
+        lines.clear();
+        expungeCollectedLines();
+        requestCount.reset();
+        requestedCharacters.reset();
+        pooledCharacters.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d distinct of %d lines, %d of %d characters (dedup ratio %.2f)",
+                size(), getRequestCount(), getPooledCharacters(), getRequestedCharacters(), getDedupRatio());
+    }
+}
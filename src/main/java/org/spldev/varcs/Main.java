@@ -29,7 +29,6 @@ import de.featjar.util.logging.Logger;
 import de.featjar.util.logging.Logger.LogType;
 import de.featjar.util.logging.TabFormatter;
 import de.featjar.util.logging.TimeStampFormatter;
-import de.featjar.util.tree.Trees;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -66,8 +65,7 @@ import org.spldev.varcs.io.TextFileIO;
 import org.spldev.varcs.structure.BinaryFileNode;
 import org.spldev.varcs.structure.CommitNode;
 import org.spldev.varcs.structure.TextFileNode;
-import org.spldev.varcs.visitors.StatisticVisitor;
-import org.spldev.varcs.visitors.StatisticVisitor.Statistic;
+import org.spldev.varcs.visitors.LineExtractor;
 
 public class Main implements CLIFunction {
 
@@ -90,6 +88,7 @@ public class Main implements CLIFunction {
     public static final String varfilesTextPCDirectoryName = "text_pc";
     public static final String varfilesTextDirectoryName = "text";
     public static final String varfilesBinaryDirectoryName = "binary";
+    public static final String spillDirectoryName = "spill";
 
     private static final int FORK_LIMIT = 4_000;
     private static final boolean FORCE_FETCH = false;
@@ -105,6 +104,11 @@ public class Main implements CLIFunction {
 
     private static final boolean skipExistingFiles = true;
 
+    private static final boolean useBDDConditions = false;
+    private static final boolean useCompactConditions = false;
+    private static final long spillMemoryBudget = 0;
+    private static final int compactionInterval = LineExtractor.DEFAULT_COMPACTION_INTERVAL;
+
     public static TabFormatter tabFormatter = new TabFormatter();
 
     private List<String> systemNames;
@@ -186,15 +190,19 @@ public class Main implements CLIFunction {
                     tabFormatter.incTabLevel();
 
                     final Extractor extractor = new Extractor(git);
-                    createCommitTree(repository, extractor);
-                    // printCommits(extractor);
-                    buildCommitFormula(repository, extractor);
-                    analyzeTree(repository, extractor);
-                    analyzeCPP(repository, extractor);
-
-                    tabFormatter.decTabLevel();
-
-                    computeStatistics(system, extractor);
+                    try {
+                        createCommitTree(repository, extractor);
+                        // printCommits(extractor);
+                        buildCommitFormula(repository, extractor);
+                        analyzeTree(repository, extractor);
+                        analyzeCPP(repository, extractor);
+
+                        tabFormatter.decTabLevel();
+
+                        computeStatistics(system, extractor);
+                    } finally {
+                        extractor.getFileMap().close();
+                    }
                 }
             } else {
                 Logger.logInfo("Skipping invalid system " + system);
@@ -266,22 +274,20 @@ public class Main implements CLIFunction {
 
             csvWriter.addValue(extractor.getFormula().getUniqueLiterals().size()); // #literals
 
-            final HashMap<CommitNode, Statistic> statistics = Trees.traverse(
-                            extractor.getCommitTree(),
-                            new StatisticVisitor(
-                                    extractor.getGitUtils(), extractor.getFileMap(), extractor.getFormula()))
-                    .orElseThrow();
-
-            csvWriter.addValue(statistics.values().stream()
-                    .mapToLong(s -> s.activeBinaryFiles)
-                    .average()
-                    .getAsDouble());
-            csvWriter.addValue(statistics.values().stream()
-                    .mapToLong(s -> s.activeTextFiles)
-                    .average()
-                    .getAsDouble());
-            csvWriter.addValue(
-                    statistics.values().stream().mapToLong(s -> s.loc).average().getAsDouble());
+            // Averages over every commit of the tree. StatisticVisitor, which evaluates the conditions per commit,
+            // also inspects every commit once (a merge after its last parent), so both compute the same averages.
+            final ConditionCommitIndex commitIndex = new ConditionCommitIndex(
+                    extractor.getCommitTree(),
+                    extractor.getGitUtils(),
+                    extractor.getFileMap().getConditionDictionary());
+            final double commitCount = commitIndex.getCommitCount();
+
+            csvWriter.addValue(commitIndex.countActive(binaryFileMap.values()) / commitCount);
+            csvWriter.addValue(commitIndex.countActive(textFileMap.values()) / commitCount);
+            csvWriter.addValue(textFileMap.values().stream()
+                            .mapToLong(commitIndex::countActiveData)
+                            .sum()
+                    / commitCount);
 
             csvWriter.flush();
             tabFormatter.decTabLevel();
@@ -457,8 +463,31 @@ public class Main implements CLIFunction {
                 || !Files.exists(varTextDirectory)) {
             Logger.logInfo("Extracting lines");
             tabFormatter.incTabLevel();
+            if (useBDDConditions) {
+                // BDD variables are ordered by their dictionary index. Registering the commits in topological order
+                // keeps the condition of a line, which is built up along its history, linear in size.
+                final BDDNodeDictionary nodeDictionary = new BDDNodeDictionary();
+                CommitTree.topologicalOrderStream(extractor.getCommitTree())
+                        .forEach(commit -> nodeDictionary.putVariable(extractor
+                                .getGitUtils()
+                                .getVariable(commit)
+                                .orElseThrow(NullPointerException::new)));
+                extractor.getFileMap().setConditionDictionary(nodeDictionary);
+            } else if (useCompactConditions) {
+                extractor.getFileMap().setConditionDictionary(new CompactNodeDictionary(systemDirectory));
+            }
+            if (spillMemoryBudget > 0) {
+                extractor
+                        .getFileMap()
+                        .setFileSpill(new FileSpill(
+                                systemDirectory.resolve(spillDirectoryName),
+                                spillMemoryBudget,
+                                extractor.getFileMap().getLinePool()));
+            }
+            extractor.setCompactionInterval(compactionInterval);
             extractor.extractLines();
             tabFormatter.decTabLevel();
+            Logger.logInfo("Line pool: " + extractor.getFileMap().getLinePool());
 
             Logger.logInfo("Refreshing node dictionary");
             final FileMap fileMap = extractor.getFileMap();
@@ -499,6 +528,7 @@ public class Main implements CLIFunction {
 
             Logger.logInfo("Writing condition file");
             ConditionIO.write(fileMap.getConditionDictionary(), conditionFile);
+            fileMap.getLinePool().clear();
         } else {
             Logger.logInfo("Reading condition file");
             final FileMap fileMap = new FileMap();
@@ -513,7 +543,7 @@ public class Main implements CLIFunction {
                             String.format("Text file %d: %s", fileCounter.getAndIncrement(), path))) //
                     .forEach(path -> {
                         try {
-                            final TextFileNode fileNode = TextFileIO.read(path);
+                            final TextFileNode fileNode = TextFileIO.read(path, fileMap.getLinePool());
                             assert (fileMap.getTextFileMap().containsKey(fileNode.getPath()));
                             fileMap.addTextNode(fileNode);
                         } catch (final IOException e) {
@@ -528,14 +558,16 @@ public class Main implements CLIFunction {
                             String.format("Binary file %d: %s", fileCounter.getAndIncrement(), path))) //
                     .forEach(path -> {
                         try {
-                            final BinaryFileNode fileNode = BinaryFileIO.read(path);
+                            final BinaryFileNode fileNode = BinaryFileIO.read(path, fileMap.getBlobStore());
                             assert (fileMap.getBinaryFileMap().containsKey(fileNode.getPath()));
-                            fileMap.addBinaryNode(BinaryFileIO.read(path));
+                            fileMap.addBinaryNode(fileNode);
                         } catch (final IOException e) {
                             throw new RuntimeException(e);
                         }
                     });
             tabFormatter.decTabLevel();
+            Logger.logInfo("Line pool: " + fileMap.getLinePool());
+            fileMap.getLinePool().clear();
 
             extractor.setFileMap(fileMap);
         }
@@ -590,7 +622,7 @@ public class Main implements CLIFunction {
                             String.format("PC Text file %d: %s", fileCounter.getAndIncrement(), path))) //
                     .forEach(path -> {
                         try {
-                            final TextFileNode fileNode = TextFileIO.read(path);
+                            final TextFileNode fileNode = TextFileIO.read(path, fileMap.getLinePool());
                             assert (fileMap.getTextFileMap().containsKey(fileNode.getPath()));
                             fileMap.addTextNode(fileNode);
                         } catch (final IOException e) {
@@ -598,6 +630,7 @@ public class Main implements CLIFunction {
                         }
                     });
             tabFormatter.decTabLevel();
+            fileMap.getLinePool().clear();
         }
     }
 
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+public class MappedProgramStore extends ProgramStore {
+
+    private static final int SEGMENT_BITS = 20;
+    private static final int SEGMENT_INTS = 1 << SEGMENT_BITS;
+    private static final long SEGMENT_MASK = SEGMENT_INTS - 1;
+
+    // The file and segments behind a store. When a store is closed, they are handed on to the next store created from
+    // the same pool, which overwrites them from the start.
+    private static final class Mapping {
+        private final FileChannel channel;
+        private IntBuffer[] segments = new IntBuffer[0];
+
+        private Mapping(FileChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private static final class MappingPool {
+        private final Path directory;
+        private Mapping spareMapping;
+        private int openStores = 0;
+
+        private MappingPool(Path directory) {
+            this.directory = directory;
+        }
+
+        private synchronized Mapping acquire() throws IOException {
+            Mapping mapping = spareMapping;
+            if (mapping != null) {
+                spareMapping = null;
+            } else {
+                final Path file = Files.createTempFile(directory, "conditions", ".bin");
+                file.toFile().deleteOnExit();
+                mapping = new Mapping(FileChannel.open(
+                        file,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE));
+            }
+            openStores++;
+            return mapping;
+        }
+
+        // A compaction keeps at most the old and the new store open, so one spare mapping is enough.
+        private synchronized void release(Mapping mapping) throws IOException {
+            openStores--;
+            if ((openStores > 0) && (spareMapping == null)) {
+                spareMapping = mapping;
+                return;
+            }
+            mapping.channel.close();
+            if ((openStores == 0) && (spareMapping != null)) {
+                spareMapping.channel.close();
+                spareMapping = null;
+            }
+        }
+    }
+
+    private final MappingPool pool;
+    private final Mapping mapping;
+    private boolean closed = false;
+
+    private volatile IntBuffer[] segments;
+    private volatile long[] offsets = new long[1024];
+    private long position = 0;
+
+    public MappedProgramStore() {
+        pool = null;
+        mapping = new Mapping(null);
+        segments = mapping.segments;
+    }
+
+    public MappedProgramStore(Path directory) throws IOException {
+        this(new MappingPool(directory));
+    }
+
+    private MappedProgramStore(MappingPool pool) throws IOException {
+        this.pool = pool;
+        mapping = pool.acquire();
+        segments = mapping.segments;
+    }
+
+    public MappedProgramStore createEmpty() {
+        if (pool == null) {
+            return new MappedProgramStore();
+        }
+        try {
+            return new MappedProgramStore(pool);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int[] get(int index) {
+        final long offset = offsets[index];
+        final IntBuffer segment = segments[(int) (offset >>> SEGMENT_BITS)];
+        final int start = (int) (offset & SEGMENT_MASK);
+        final int[] program = new int[segment.get(start)];
+        for (int i = 0; i < program.length; i++) {
+            program[i] = segment.get(start + 1 + i);
+        }
+        return program;
+    }
+
+    @Override
+    public int getLength(int index) {
+        final long offset = offsets[index];
+        return segments[(int) (offset >>> SEGMENT_BITS)].get((int) (offset & SEGMENT_MASK));
+    }
+
+    @Override
+    public int[] get(int index, int[] buffer) {
+        final long offset = offsets[index];
+        final IntBuffer segment = segments[(int) (offset >>> SEGMENT_BITS)];
+        final int start = (int) (offset & SEGMENT_MASK);
+        final int length = segment.get(start);
+        for (int i = 0; i < length; i++) {
+            buffer[i] = segment.get(start + 1 + i);
+        }
+        return buffer;
+    }
+
+    @Override
+    public boolean equals(int index, int[] program) {
+        final long offset = offsets[index];
+        final IntBuffer segment = segments[(int) (offset >>> SEGMENT_BITS)];
+        final int start = (int) (offset & SEGMENT_MASK);
+        if (segment.get(start) != program.length) {
+            return false;
+        }
+        for (int i = 0; i < program.length; i++) {
+            if (segment.get(start + 1 + i) != program[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized void set(int index, int[] program) {
+        final int size = program.length + 1;
+        if (size > SEGMENT_INTS) {
+            throw new IllegalArgumentException("Program too large: " + program.length);
+        }
+        long offset = position;
+        if ((offset & SEGMENT_MASK) + size > SEGMENT_INTS) {
+            offset = (offset | SEGMENT_MASK) + 1;
+        }
+        final int segmentIndex = (int) (offset >>> SEGMENT_BITS);
+        final IntBuffer segment = getSegment(segmentIndex);
+        final int start = (int) (offset & SEGMENT_MASK);
+        segment.put(start, program.length);
+        for (int i = 0; i < program.length; i++) {
+            segment.put(start + 1 + i, program[i]);
+        }
+        position = offset + size;
+
+        long[] currentOffsets = offsets;
+        if (index >= currentOffsets.length) {
+            currentOffsets = Arrays.copyOf(currentOffsets, Math.max(index + 1, 2 * currentOffsets.length));
+        }
+        currentOffsets[index] = offset;
+        offsets = currentOffsets;
+    }
+
+    private IntBuffer getSegment(int segmentIndex) {
+        IntBuffer[] currentSegments = segments;
+        if (segmentIndex < currentSegments.length) {
+            return currentSegments[segmentIndex];
+        }
+        currentSegments = Arrays.copyOf(currentSegments, segmentIndex + 1);
+        final ByteBuffer buffer;
+        if (mapping.channel != null) {
+            try {
+                buffer = mapping.channel.map(
+                        FileChannel.MapMode.READ_WRITE, (long) segmentIndex * SEGMENT_INTS * Integer.BYTES,
+                        (long) SEGMENT_INTS * Integer.BYTES);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            buffer = ByteBuffer.allocateDirect(SEGMENT_INTS * Integer.BYTES);
+        }
+        currentSegments[segmentIndex] = buffer.order(ByteOrder.nativeOrder()).asIntBuffer();
+        segments = currentSegments;
+        return currentSegments[segmentIndex];
+    }
+
+    @Override
+    public synchronized void clear() {
+        position = 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        mapping.segments = segments;
+        segments = new IntBuffer[0];
+        position = 0;
+        if (pool != null) {
+            try {
+                pool.release(mapping);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
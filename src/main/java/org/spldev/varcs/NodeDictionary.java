@@ -20,51 +20,85 @@
  */
 package org.spldev.varcs;
 
-import it.unimi.dsi.fastutil.objects.*;
+import it.unimi.dsi.fastutil.ints.*;
+import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import org.prop4j.*;
 
-public class NodeDictionary {
+public class NodeDictionary implements Closeable {
 
-    private final Object2IntOpenHashMap<Node> nodeToIndex = new Object2IntOpenHashMap<>();
-    private final ArrayList<Node> indexToNode = new ArrayList<>();
+    private final NodeInterner interner = new NodeInterner();
+    private final ChunkedArray<Node> indexToNode = new ChunkedArray<>();
+    private final ProgramStore programs;
+    private final AtomicInteger conditionCount = new AtomicInteger();
 
-    private final Object2IntOpenHashMap<String> variableToIndex = new Object2IntOpenHashMap<>();
-    private final ArrayList<String> indexToVariable = new ArrayList<>();
+    private final ConcurrentHashMap<String, Integer> variableToIndex = new ConcurrentHashMap<>();
+    private final ChunkedArray<String> indexToVariable = new ChunkedArray<>();
+    private volatile int variableCount = 0;
+
+    private final ChunkedArray<IntArrayList> variableToConditions = new ChunkedArray<>();
+    private final ChunkedArray<IntArrayList> conditionToDependents = new ChunkedArray<>();
+
+    private final ThreadLocal<Evaluator> evaluators = ThreadLocal.withInitial(Evaluator::new);
+
+    public NodeDictionary() {
+        this(new ProgramStore());
+    }
+
+    protected NodeDictionary(ProgramStore programs) {
+        this.programs = programs;
+    }
 
     public void refreshVariableIndex() {
-        variableToIndex.clear();
-        int literalIndex = 0;
-        for (final Node node : indexToNode) {
-            for (final Literal literal : node.getUniqueLiterals()) {
-                final String var = String.valueOf(literal.var);
-                if (!variableToIndex.containsKey(var)) {
-                    variableToIndex.put(var, literalIndex++);
-                    indexToVariable.add(var);
-                }
+        final int count = conditionCount.get();
+        for (int i = 0; i < count; i++) {
+            for (final Literal literal : indexToNode.get(i).getUniqueLiterals()) {
+                putVariable(String.valueOf(literal.var));
             }
         }
     }
 
-    public NodeDictionary() {
-        nodeToIndex.defaultReturnValue(-1);
-    }
-
     public void clear() {
-        nodeToIndex.clear();
+        interner.clear();
         indexToNode.clear();
+        programs.clear();
+        conditionToDependents.clear();
+        conditionCount.set(0);
+        for (int i = 0; i < variableCount; i++) {
+            variableToConditions.get(i).clear();
+        }
+    }
+
+    @Override
+    public void close() {
+        interner.clear();
+        programs.close();
+    }
+
+    public NodeDictionary createEmpty() {
+        return new NodeDictionary();
     }
 
-    public ArrayList<Node> getConditions() {
-        return indexToNode;
+    public List<Node> getConditions() {
+        return indexToNode.asList(this::getConditionCount);
+    }
+
+    public int getConditionCount() {
+        return conditionCount.get();
     }
 
     public Node getCondition(int index) {
         return indexToNode.get(index);
     }
 
-    public ArrayList<String> getVariables() {
-        return indexToVariable;
+    public int[] getProgram(int index) {
+        return programs.get(index);
+    }
+
+    public List<String> getVariables() {
+        return indexToVariable.asList(this::getVariableCount);
     }
 
     public String getVariable(int index) {
@@ -72,112 +106,360 @@ public class NodeDictionary {
     }
 
     public int getVariableIndex(String variableName) {
-        return variableToIndex.getInt(variableName);
+        return variableToIndex.getOrDefault(variableName, -1);
     }
 
-    public int getIndexSynced(Node node) {
-        if (node == null) {
-            return -1;
+    public int putVariable(String variableName) {
+        final Integer index = variableToIndex.get(variableName);
+        return index != null ? index : addVariable(variableName);
+    }
+
+    private synchronized int addVariable(String variableName) {
+        Integer index = variableToIndex.get(variableName);
+        if (index == null) {
+            index = variableCount;
+            indexToVariable.set(index, variableName);
+            variableToConditions.set(index, new IntArrayList());
+            variableToIndex.put(variableName, index);
+            variableCount = index + 1;
+        }
+        return index;
+    }
+
+    public void putVariables(Node formula) {
+        for (final Literal literal : formula.getUniqueLiterals()) {
+            putVariable(String.valueOf(literal.var));
+        }
+    }
+
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    public boolean evaluate(int index, VariableAssignment assignment) {
+        final byte truthValue = assignment.getTruthValue(index);
+        if (truthValue != VariableAssignment.UNKNOWN) {
+            return truthValue == VariableAssignment.TRUE;
+        }
+        return evaluators.get().evaluate(index, assignment);
+    }
+
+    public long evaluate(int index, AssignmentBatch batch) {
+        if (batch.hasConditionValue(index)) {
+            return batch.getConditionValue(index);
         }
-        int index;
-        synchronized (nodeToIndex) {
-            index = nodeToIndex.getInt(node);
-            if (index < 0) {
-                index = addNode(node);
+        return evaluators.get().evaluate(index, batch);
+    }
+
+    public void resetTruthValues(VariableAssignment assignment, int variableIndex) {
+        final IntArrayList conditions = variableToConditions.get(variableIndex);
+        final IntArrayList stack;
+        synchronized (conditions) {
+            stack = new IntArrayList(conditions);
+        }
+        while (!stack.isEmpty()) {
+            final int conditionIndex = stack.popInt();
+            if (assignment.resetTruthValue(conditionIndex)) {
+                final IntArrayList dependents = conditionToDependents.get(conditionIndex);
+                if (dependents != null) {
+                    synchronized (dependents) {
+                        stack.addAll(dependents);
+                    }
+                }
             }
         }
-        return index;
+    }
+
+    public int getIndexSynced(Node node) {
+        return getIndex(node);
     }
 
     public int getIndex(Node node) {
         if (node == null) {
             return -1;
         }
-        int index = nodeToIndex.getInt(node);
-        if (index < 0) {
-            index = addNode(node);
+        final NodeInterner.InternedNode interned = interner.intern(node);
+        final int index = interned.getCondition();
+        if (index >= 0) {
+            return index;
+        }
+        synchronized (interned) {
+            if (interned.getCondition() < 0) {
+                interned.setCondition(allocateNode(interned.getNode()));
+            }
+            return interned.getCondition();
         }
-        return index;
     }
 
     public int putIndex(Node node) {
-        return addNode(node);
+        final NodeInterner.InternedNode interned = interner.intern(node);
+        synchronized (interned) {
+            final int index = allocateNode(interned.getNode());
+            interned.setCondition(index);
+            return index;
+        }
+    }
+
+    public int transferCondition(int index, NodeDictionary target) {
+        return target.putIndex(getCondition(index));
+    }
+
+    public int getConjunctionIndex(int index, Node node) {
+        return getIndexSynced(new And(getCondition(index), node));
+    }
+
+    public int getDisjunctionIndex(int index, Node node) {
+        return getIndexSynced(new Or(getCondition(index), node));
     }
 
     @SuppressWarnings("unchecked")
     public <T extends Node> T getCondition(T node) {
         if (node != null) {
-            final int index = nodeToIndex.getInt(node);
-            if (index >= 0) {
-                return (T) indexToNode.get(index);
+            final NodeInterner.InternedNode interned = interner.find(node);
+            if ((interned != null) && (interned.getCondition() >= 0)) {
+                return (T) interned.getNode();
             }
         }
         return null;
     }
 
     public void putConditionSynced(Node node) {
-        if (node != null) {
-            synchronized (nodeToIndex) {
-                if (!nodeToIndex.containsKey(node)) {
-                    addNode(node);
-                }
-            }
-        }
+        putCondition(node);
     }
 
     public void putCondition(Node node) {
-        if ((node != null) && !nodeToIndex.containsKey(node)) {
-            addNode(node);
-        }
+        getIndex(node);
     }
 
-    private int addNode(Node node) {
-        final int index = indexToNode.size();
-        nodeToIndex.put(node, index);
-        indexToNode.add(node);
+    private int allocateNode(Node node) {
+        final int[] program = ConditionProgram.compile(
+                node, var -> putVariable(String.valueOf(var)), this::getExistingIndex);
+        final int index = addProgram(program);
+        indexToNode.set(index, node);
         return index;
     }
 
-    private static class StackEntry {
-        private Node node;
-        private int index = 0;
+    protected ProgramStore getPrograms() {
+        return programs;
+    }
 
-        public StackEntry(Node node) {
-            this.node = node;
+    protected int addProgram(int[] program) {
+        final int index = conditionCount.getAndIncrement();
+        programs.set(index, program);
+        for (final int instruction : program) {
+            final int operand = ConditionProgram.operand(instruction);
+            switch (ConditionProgram.opcode(instruction)) {
+                case ConditionProgram.POSITIVE_LITERAL:
+                case ConditionProgram.NEGATIVE_LITERAL:
+                    addReference(variableToConditions.get(operand), index);
+                    break;
+                case ConditionProgram.CONDITION:
+                    IntArrayList dependents = conditionToDependents.get(operand);
+                    if (dependents == null) {
+                        conditionToDependents.compareAndSet(operand, null, new IntArrayList(2));
+                        dependents = conditionToDependents.get(operand);
+                    }
+                    addReference(dependents, index);
+                    break;
+                default:
+                    break;
+            }
         }
+        return index;
     }
 
-    @SuppressWarnings("unused")
-    private int addNodeTree(Node node) {
-        final LinkedList<StackEntry> stack = new LinkedList<>();
-        final ArrayList<Node> newNodes = new ArrayList<>();
-        stack.push(new StackEntry(node));
-        int index = -1;
+    private int getExistingIndex(Node node) {
+        final NodeInterner.InternedNode interned = interner.find(node);
+        return interned != null ? interned.getCondition() : -1;
+    }
 
-        while (!stack.isEmpty()) {
-            final StackEntry entry = stack.peek();
-            Node child = entry.node;
-            if ((child.getChildren() != null) && (entry.index < child.getChildren().length)) {
-                stack.push(new StackEntry(child.getChildren()[entry.index++]));
-            } else {
-                if (child.getChildren() != null) {
-                    final List<Node> newChildren =
-                            newNodes.subList(newNodes.size() - child.getChildren().length, newNodes.size());
-                    child.setChildren(newChildren.toArray(new Node[0]));
-                    newChildren.clear();
+    private static void addReference(IntArrayList references, int index) {
+        synchronized (references) {
+            references.add(index);
+        }
+    }
+
+    private class Evaluator {
+        private int[] values = new int[32];
+        private long[] batchValues = new long[32];
+        private int[] frames = new int[32];
+        private int[] buffer = new int[64];
+
+        private int[] load(int conditionIndex, int length) {
+            if (length > buffer.length) {
+                buffer = new int[Math.max(length, 2 * buffer.length)];
+            }
+            return programs.get(conditionIndex, buffer);
+        }
+
+        private boolean evaluate(int conditionIndex, VariableAssignment assignment) {
+            int current = conditionIndex;
+            int length = programs.getLength(current);
+            int[] program = load(current, length);
+            int pc = 0;
+            int sp = 0;
+            int fp = 0;
+            while (true) {
+                if (pc == length) {
+                    final boolean result = values[sp - 1] != 0;
+                    assignment.setTruthValue(current, result);
+                    if (fp == 0) {
+                        return result;
+                    }
+                    fp -= 2;
+                    current = frames[fp];
+                    pc = frames[fp + 1];
+                    length = programs.getLength(current);
+                    program = load(current, length);
+                    continue;
+                }
+                final int instruction = program[pc++];
+                final int operand = ConditionProgram.operand(instruction);
+                if (sp == values.length) {
+                    values = Arrays.copyOf(values, 2 * sp);
                 }
-                index = nodeToIndex.getInt(child);
-                if (index < 0) {
-                    index = indexToNode.size();
-                    nodeToIndex.put(child, index);
-                    indexToNode.add(child);
-                } else {
-                    child = indexToNode.get(index);
+                switch (ConditionProgram.opcode(instruction)) {
+                    case ConditionProgram.POSITIVE_LITERAL:
+                        values[sp++] = assignment.get(operand) ? 1 : 0;
+                        break;
+                    case ConditionProgram.NEGATIVE_LITERAL:
+                        values[sp++] = assignment.get(operand) ? 0 : 1;
+                        break;
+                    case ConditionProgram.CONDITION: {
+                        final byte truthValue = assignment.getTruthValue(operand);
+                        if (truthValue != VariableAssignment.UNKNOWN) {
+                            values[sp++] = truthValue == VariableAssignment.TRUE ? 1 : 0;
+                            break;
+                        }
+                        if (fp == frames.length) {
+                            frames = Arrays.copyOf(frames, 2 * fp);
+                        }
+                        frames[fp++] = current;
+                        frames[fp++] = pc;
+                        current = operand;
+                        length = programs.getLength(current);
+                        program = load(current, length);
+                        pc = 0;
+                        break;
+                    }
+                    case ConditionProgram.NOT:
+                        values[sp - 1] ^= 1;
+                        break;
+                    case ConditionProgram.AND: {
+                        int result = 1;
+                        for (int i = 0; i < operand; i++) {
+                            result &= values[--sp];
+                        }
+                        values[sp++] = result;
+                        break;
+                    }
+                    case ConditionProgram.OR: {
+                        int result = 0;
+                        for (int i = 0; i < operand; i++) {
+                            result |= values[--sp];
+                        }
+                        values[sp++] = result;
+                        break;
+                    }
+                    case ConditionProgram.IMPLIES: {
+                        final int consequent = values[--sp];
+                        values[sp - 1] = (values[sp - 1] == 0) ? 1 : consequent;
+                        break;
+                    }
+                    case ConditionProgram.EQUALS: {
+                        final int right = values[--sp];
+                        values[sp - 1] = (values[sp - 1] == right) ? 1 : 0;
+                        break;
+                    }
+                    default:
+                        throw new IllegalStateException(String.valueOf(instruction));
+                }
+            }
+        }
+
+        private long evaluate(int conditionIndex, AssignmentBatch batch) {
+            final long lanes = batch.getLanes();
+            int current = conditionIndex;
+            int length = programs.getLength(current);
+            int[] program = load(current, length);
+            int pc = 0;
+            int sp = 0;
+            int fp = 0;
+            while (true) {
+                if (pc == length) {
+                    final long result = batchValues[sp - 1];
+                    batch.setConditionValue(current, result);
+                    if (fp == 0) {
+                        return result;
+                    }
+                    fp -= 2;
+                    current = frames[fp];
+                    pc = frames[fp + 1];
+                    length = programs.getLength(current);
+                    program = load(current, length);
+                    continue;
+                }
+                final int instruction = program[pc++];
+                final int operand = ConditionProgram.operand(instruction);
+                if (sp == batchValues.length) {
+                    batchValues = Arrays.copyOf(batchValues, 2 * sp);
+                }
+                switch (ConditionProgram.opcode(instruction)) {
+                    case ConditionProgram.POSITIVE_LITERAL:
+                        batchValues[sp++] = batch.getVariable(operand);
+                        break;
+                    case ConditionProgram.NEGATIVE_LITERAL:
+                        batchValues[sp++] = ~batch.getVariable(operand) & lanes;
+                        break;
+                    case ConditionProgram.CONDITION: {
+                        if (batch.hasConditionValue(operand)) {
+                            batchValues[sp++] = batch.getConditionValue(operand);
+                            break;
+                        }
+                        if (fp == frames.length) {
+                            frames = Arrays.copyOf(frames, 2 * fp);
+                        }
+                        frames[fp++] = current;
+                        frames[fp++] = pc;
+                        current = operand;
+                        length = programs.getLength(current);
+                        program = load(current, length);
+                        pc = 0;
+                        break;
+                    }
+                    case ConditionProgram.NOT:
+                        batchValues[sp - 1] ^= lanes;
+                        break;
+                    case ConditionProgram.AND: {
+                        long result = lanes;
+                        for (int i = 0; i < operand; i++) {
+                            result &= batchValues[--sp];
+                        }
+                        batchValues[sp++] = result;
+                        break;
+                    }
+                    case ConditionProgram.OR: {
+                        long result = 0L;
+                        for (int i = 0; i < operand; i++) {
+                            result |= batchValues[--sp];
+                        }
+                        batchValues[sp++] = result;
+                        break;
+                    }
+                    case ConditionProgram.IMPLIES: {
+                        final long consequent = batchValues[--sp];
+                        batchValues[sp - 1] = (~batchValues[sp - 1] & lanes) | consequent;
+                        break;
+                    }
+                    case ConditionProgram.EQUALS: {
+                        final long right = batchValues[--sp];
+                        batchValues[sp - 1] = ~(batchValues[sp - 1] ^ right) & lanes;
+                        break;
+                    }
+                    default:
+                        throw new IllegalStateException(String.valueOf(instruction));
                 }
-                newNodes.add(child);
-                stack.pop();
             }
         }
-        return index;
     }
 }
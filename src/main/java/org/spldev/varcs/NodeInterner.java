@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import org.prop4j.*;
+
+public class NodeInterner {
+
+    public static final class InternedNode {
+        private final Node node;
+        private final int hash;
+        private volatile int condition = -1;
+
+        private InternedNode(Node node, int hash) {
+            this.node = node;
+            this.hash = hash;
+        }
+
+        public Node getNode() {
+            return node;
+        }
+
+        public int getCondition() {
+            return condition;
+        }
+
+        void setCondition(int condition) {
+            this.condition = condition;
+        }
+    }
+
+    private static final class Link {
+        private final InternedNode entry;
+        private final int hash;
+        private final Link next;
+
+        private Link(InternedNode entry, int hash, Link next) {
+            this.entry = entry;
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    // Chains are immutable and only prepended under the lock, so lookups walk them without locking. A lookup that
+    // misses a concurrent insert or resize is repeated under the lock before inserting.
+    private static final class Segment {
+        private volatile AtomicReferenceArray<Link> table = new AtomicReferenceArray<>(16);
+        private int size = 0;
+
+        private Link get(int hash) {
+            final AtomicReferenceArray<Link> currentTable = table;
+            return currentTable.get(hash & (currentTable.length() - 1));
+        }
+
+        private synchronized void add(InternedNode entry, int hash) {
+            final AtomicReferenceArray<Link> currentTable = table;
+            final int bucket = hash & (currentTable.length() - 1);
+            currentTable.set(bucket, new Link(entry, hash, currentTable.get(bucket)));
+            if (++size > (currentTable.length() - (currentTable.length() >> 2))) {
+                final AtomicReferenceArray<Link> newTable = new AtomicReferenceArray<>(currentTable.length() << 1);
+                final int mask = newTable.length() - 1;
+                for (int i = 0; i < currentTable.length(); i++) {
+                    for (Link link = currentTable.get(i); link != null; link = link.next) {
+                        final int newBucket = link.hash & mask;
+                        newTable.set(newBucket, new Link(link.entry, link.hash, newTable.get(newBucket)));
+                    }
+                }
+                table = newTable;
+            }
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private synchronized void clear() {
+            table = new AtomicReferenceArray<>(16);
+            size = 0;
+        }
+    }
+
+    private static class StackEntry {
+        private final Node node;
+        private final Node[] children;
+        private final int[] hashes;
+        private int index = 0;
+
+        public StackEntry(Node node) {
+            this.node = node;
+            final Node[] nodeChildren = node.getChildren();
+            final int childCount = (nodeChildren == null) ? 0 : nodeChildren.length;
+            children = new Node[childCount];
+            hashes = new int[childCount];
+        }
+    }
+
+    private static final int SEGMENT_BITS = 4;
+
+    // One table keyed by structural hash, striped into segments. An entry holds the canonical node and its condition
+    // index. Children of canonical nodes are canonical, so candidates are compared by child identity. Entries live
+    // as long as the owning dictionary, which is cleared or replaced on compaction.
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    // The same entries keyed by the identity of their canonical node. A canonical node or subtree that is passed in
+    // again is found without walking and hashing it.
+    private final Segment[] identitySegments = new Segment[1 << SEGMENT_BITS];
+
+    public NodeInterner() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+            identitySegments[i] = new Segment();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (final Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (int i = 0; i < segments.length; i++) {
+            synchronized (segments[i]) {
+                segments[i].clear();
+                identitySegments[i].clear();
+            }
+        }
+    }
+
+    public InternedNode intern(Node node) {
+        return traverse(node, true);
+    }
+
+    public InternedNode find(Node node) {
+        return traverse(node, false);
+    }
+
+    private InternedNode traverse(Node root, boolean insert) {
+        InternedNode result = findCanonical(root);
+        if (result != null) {
+            return result;
+        }
+        final ArrayDeque<StackEntry> stack = new ArrayDeque<>();
+        stack.push(new StackEntry(checkType(root)));
+        while (!stack.isEmpty()) {
+            final StackEntry entry = stack.peek();
+            if (entry.index < entry.children.length) {
+                final Node child = entry.node.getChildren()[entry.index];
+                final InternedNode canonicalChild = findCanonical(child);
+                if (canonicalChild != null) {
+                    entry.children[entry.index] = child;
+                    entry.hashes[entry.index++] = canonicalChild.hash;
+                } else {
+                    stack.push(new StackEntry(checkType(child)));
+                }
+                continue;
+            }
+            stack.pop();
+            final int hash = hash(entry.node, entry.children, entry.hashes);
+            result = get(entry.node, entry.children, hash, insert);
+            if (result == null) {
+                return null;
+            }
+            final StackEntry parent = stack.peek();
+            if (parent != null) {
+                parent.children[parent.index] = result.node;
+                parent.hashes[parent.index++] = hash;
+            }
+        }
+        return result;
+    }
+
+    private InternedNode findCanonical(Node node) {
+        final int hash = identityHash(node);
+        for (Link link = identitySegments[hash >>> (32 - SEGMENT_BITS)].get(hash); link != null; link = link.next) {
+            if (link.entry.node == node) {
+                return link.entry;
+            }
+        }
+        return null;
+    }
+
+    private InternedNode get(Node node, Node[] children, int hash, boolean insert) {
+        final Segment segment = segments[hash >>> (32 - SEGMENT_BITS)];
+        InternedNode entry = find(segment, node, children, hash);
+        if ((entry != null) || !insert) {
+            return entry;
+        }
+        synchronized (segment) {
+            entry = find(segment, node, children, hash);
+            if (entry == null) {
+                entry = new InternedNode(canonicalize(node, children), hash);
+                segment.add(entry, hash);
+                final int identityHash = identityHash(entry.node);
+                identitySegments[identityHash >>> (32 - SEGMENT_BITS)].add(entry, identityHash);
+            }
+            return entry;
+        }
+    }
+
+    private static InternedNode find(Segment segment, Node node, Node[] children, int hash) {
+        for (Link link = segment.get(hash); link != null; link = link.next) {
+            if ((link.hash == hash) && matches(link.entry.node, node, children)) {
+                return link.entry;
+            }
+        }
+        return null;
+    }
+
+    private static int identityHash(Node node) {
+        return mix(System.identityHashCode(node));
+    }
+
+    private static Node checkType(Node node) {
+        if ((node instanceof AtMost) || (node instanceof AtLeast) || (node instanceof Choose)) {
+            throw new IllegalArgumentException("Cardinality constraints are not supported: " + node);
+        }
+        if (!((node instanceof Literal)
+                || (node instanceof And)
+                || (node instanceof Or)
+                || (node instanceof Not)
+                || (node instanceof Implies)
+                || (node instanceof Equals))) {
+            throw new IllegalArgumentException(node.getClass().getName());
+        }
+        return node;
+    }
+
+    private static int hash(Node node, Node[] children, int[] hashes) {
+        int hash = node.getClass().getName().hashCode();
+        if (node instanceof Literal) {
+            final Literal literal = (Literal) node;
+            hash = (31 * hash) + Objects.hashCode(literal.var);
+            hash = (31 * hash) + (literal.positive ? 1 : 0);
+        } else if (node instanceof Implies) {
+            hash = (31 * hash) + hashes[0];
+            hash = (31 * hash) + hashes[1];
+        } else {
+            // Children form a set (prop4j compares them unordered), so combine the distinct ones commutatively.
+            int childHash = 0;
+            for (int i = 0; i < children.length; i++) {
+                if (indexOf(children, children[i], i) < 0) {
+                    childHash += mix(hashes[i]);
+                }
+            }
+            hash = (31 * hash) + children.length;
+            hash = (31 * hash) + childHash;
+        }
+        return mix(hash);
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean matches(Node canonicalNode, Node node, Node[] children) {
+        if (canonicalNode.getClass() != node.getClass()) {
+            return false;
+        }
+        if (node instanceof Literal) {
+            final Literal canonicalLiteral = (Literal) canonicalNode;
+            final Literal literal = (Literal) node;
+            return (canonicalLiteral.positive == literal.positive) && Objects.equals(canonicalLiteral.var, literal.var);
+        }
+        final Node[] canonicalChildren = canonicalNode.getChildren();
+        if (canonicalChildren.length != children.length) {
+            return false;
+        }
+        if (node instanceof Implies) {
+            return (canonicalChildren[0] == children[0]) && (canonicalChildren[1] == children[1]);
+        }
+        for (int i = 0; i < children.length; i++) {
+            if ((indexOf(canonicalChildren, children[i], children.length) < 0)
+                    || (indexOf(children, canonicalChildren[i], children.length) < 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(Node[] nodes, Node node, int length) {
+        for (int i = 0; i < length; i++) {
+            if (nodes[i] == node) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Node canonicalize(Node node, Node[] children) {
+        final Node[] nodeChildren = node.getChildren();
+        if (nodeChildren != null) {
+            for (int i = 0; i < nodeChildren.length; i++) {
+                if (nodeChildren[i] != children[i]) {
+                    return copy(node, children);
+                }
+            }
+        }
+        return node;
+    }
+
+    private static Node copy(Node node, Node[] children) {
+        if (node instanceof And) {
+            return new And(children.clone());
+        } else if (node instanceof Or) {
+            return new Or(children.clone());
+        } else if (node instanceof Not) {
+            return new Not(children[0]);
+        } else if (node instanceof Implies) {
+            return new Implies(children[0], children[1]);
+        } else {
+            return new Equals(children[0], children[1]);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import java.io.*;
+import java.util.*;
+
+public class ProgramStore implements Closeable {
+
+    private final ChunkedArray<int[]> programs = new ChunkedArray<>();
+
+    public int[] get(int index) {
+        return programs.get(index);
+    }
+
+    public int getLength(int index) {
+        return programs.get(index).length;
+    }
+
+    // Returns an array starting with the program. Stores that do not keep int[] programs copy it into the buffer,
+    // which must hold at least getLength(index) elements.
+    public int[] get(int index, int[] buffer) {
+        return programs.get(index);
+    }
+
+    public void set(int index, int[] program) {
+        programs.set(index, program);
+    }
+
+    public boolean equals(int index, int[] program) {
+        return Arrays.equals(programs.get(index), program);
+    }
+
+    public void clear() {
+        programs.clear();
+    }
+
+    @Override
+    public void close() {}
+}
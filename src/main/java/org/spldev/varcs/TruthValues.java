@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+import java.util.*;
+
+final class TruthValues {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final byte[][] NO_PAGES = new byte[0][];
+
+    private volatile byte[][] pages = NO_PAGES;
+
+    TruthValues() {}
+
+    TruthValues(TruthValues other, boolean move) {
+        final byte[][] otherPages = other.pages;
+        if (move) {
+            pages = otherPages;
+            other.clear();
+        } else {
+            final byte[][] copiedPages = new byte[otherPages.length][];
+            for (int i = 0; i < otherPages.length; i++) {
+                if (otherPages[i] != null) {
+                    copiedPages[i] = otherPages[i].clone();
+                }
+            }
+            pages = copiedPages;
+        }
+    }
+
+    byte get(int conditionIndex) {
+        final byte[][] currentPages = pages;
+        final int pageIndex = conditionIndex >>> PAGE_BITS;
+        if (pageIndex < currentPages.length) {
+            final byte[] page = currentPages[pageIndex];
+            if (page != null) {
+                return page[conditionIndex & PAGE_MASK];
+            }
+        }
+        return VariableAssignment.UNKNOWN;
+    }
+
+    void set(int conditionIndex, boolean value) {
+        getPage(conditionIndex >>> PAGE_BITS)[conditionIndex & PAGE_MASK] =
+                value ? VariableAssignment.TRUE : VariableAssignment.FALSE;
+    }
+
+    boolean reset(int conditionIndex) {
+        final byte[][] currentPages = pages;
+        final int pageIndex = conditionIndex >>> PAGE_BITS;
+        if (pageIndex < currentPages.length) {
+            final byte[] page = currentPages[pageIndex];
+            if (page != null) {
+                final int offset = conditionIndex & PAGE_MASK;
+                final byte truthValue = page[offset];
+                page[offset] = VariableAssignment.UNKNOWN;
+                return truthValue != VariableAssignment.UNKNOWN;
+            }
+        }
+        return false;
+    }
+
+    void clear() {
+        pages = NO_PAGES;
+    }
+
+    private byte[] getPage(int pageIndex) {
+        final byte[][] currentPages = pages;
+        if (pageIndex < currentPages.length) {
+            final byte[] page = currentPages[pageIndex];
+            if (page != null) {
+                return page;
+            }
+        }
+        return createPage(pageIndex);
+    }
+
+    private synchronized byte[] createPage(int pageIndex) {
+        byte[][] currentPages = pages;
+        if (pageIndex >= currentPages.length) {
+            currentPages =
+                    Arrays.copyOf(currentPages, Math.max(pageIndex + 1, currentPages.length + (currentPages.length >> 1)));
+        } else if (currentPages[pageIndex] != null) {
+            return currentPages[pageIndex];
+        }
+        final byte[] page = new byte[PAGE_SIZE];
+        currentPages[pageIndex] = page;
+        pages = currentPages;
+        return page;
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs;
+
+public interface VariableAssignment {
+
+    byte UNKNOWN = 0;
+    byte TRUE = 1;
+    byte FALSE = 2;
+
+    boolean get(int variableIndex);
+
+    byte getTruthValue(int conditionIndex);
+
+    void setTruthValue(int conditionIndex, boolean value);
+
+    boolean resetTruthValue(int conditionIndex);
+
+    void clearTruthValues();
+}
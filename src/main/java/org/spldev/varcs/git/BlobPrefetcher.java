@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs.git;
+
+import java.io.*;
+import java.util.concurrent.*;
+import org.eclipse.jgit.errors.*;
+import org.eclipse.jgit.lib.*;
+
+public class BlobPrefetcher implements Closeable {
+
+    public class Prefetch {
+
+        private final Future<byte[]> bytes;
+        private final long size;
+        private boolean released = false;
+
+        private Prefetch(Future<byte[]> bytes, long size) {
+            this.bytes = bytes;
+            this.size = size;
+        }
+
+        public byte[] get() throws IOException {
+            try {
+                if (!bytes.isDone()) {
+                    // Let a fork-join worker waiting here be compensated by a spare thread.
+                    ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                        @Override
+                        public boolean block() throws InterruptedException {
+                            try {
+                                bytes.get();
+                            } catch (final ExecutionException e) {
+                                // Rethrown by the get below.
+                            }
+                            return true;
+                        }
+
+                        @Override
+                        public boolean isReleasable() {
+                            return bytes.isDone();
+                        }
+                    });
+                }
+                return bytes.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (final ExecutionException e) {
+                throw new IOException(e.getCause());
+            } finally {
+                discard();
+            }
+        }
+
+        public void discard() {
+            if (!released) {
+                released = true;
+                release(size);
+            }
+        }
+    }
+
+    private final GitUtils gitUtils;
+    private final ThreadPoolExecutor loader;
+    private final long byteBudget;
+
+    private long reservedBytes = 0;
+
+    public BlobPrefetcher(GitUtils gitUtils, int threadCount, long byteBudget) {
+        this.gitUtils = gitUtils;
+        this.byteBudget = byteBudget;
+        loader = new ThreadPoolExecutor(
+                threadCount, threadCount, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+                    final Thread thread = new Thread(runnable, "blob-prefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        loader.allowCoreThreadTimeOut(true);
+    }
+
+    public long getSize(ObjectReader reader, ObjectId objectId) throws IOException {
+        try {
+            return reader.getObjectSize(objectId, Constants.OBJ_BLOB);
+        } catch (final MissingObjectException e) {
+            return 0;
+        }
+    }
+
+    public Prefetch tryPrefetch(ObjectId objectId, long size) {
+        synchronized (this) {
+            if (!fits(size)) {
+                return null;
+            }
+            reservedBytes += size;
+        }
+        return new Prefetch(loader.submit(() -> gitUtils.getBytes(objectId)), size);
+    }
+
+    public Prefetch prefetch(ObjectId objectId, long size) throws InterruptedException {
+        synchronized (this) {
+            while (!fits(size)) {
+                wait();
+            }
+            reservedBytes += size;
+        }
+        return new Prefetch(loader.submit(() -> gitUtils.getBytes(objectId)), size);
+    }
+
+    private boolean fits(long size) {
+        return (reservedBytes == 0) || ((reservedBytes + size) <= byteBudget);
+    }
+
+    private synchronized void release(long size) {
+        reservedBytes -= size;
+        notifyAll();
+    }
+
+    @Override
+    public void close() {
+        loader.shutdownNow();
+    }
+}
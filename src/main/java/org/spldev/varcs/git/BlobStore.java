@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs.git;
+
+import java.io.*;
+import java.util.concurrent.*;
+import org.eclipse.jgit.lib.*;
+
+public class BlobStore {
+
+    private final Repository repository;
+
+    private final ConcurrentHashMap<ObjectId, ObjectId> objectIds = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<ObjectId, byte[]> blobs = new ConcurrentHashMap<>();
+
+    public BlobStore(Repository repository) {
+        this.repository = repository;
+    }
+
+    public ObjectId add(ObjectId objectId) {
+        final ObjectId pooledObjectId = objectIds.putIfAbsent(objectId, objectId);
+        return pooledObjectId != null ? pooledObjectId : objectId;
+    }
+
+    public ObjectId put(byte[] bytes) {
+        final ObjectId objectId = add(new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, bytes));
+        blobs.putIfAbsent(objectId, bytes);
+        return objectId;
+    }
+
+    // Blobs that were not put are not cached: each call opens and inflates the object from the repository again, so
+    // callers that need the bytes more than once should keep them.
+    public byte[] get(ObjectId objectId) {
+        final byte[] bytes = blobs.get(objectId);
+        if (bytes != null) {
+            return bytes;
+        }
+        if (repository == null) {
+            throw new IllegalStateException("Unknown blob " + objectId.name());
+        }
+        try {
+            return repository.open(objectId, Constants.OBJ_BLOB).getBytes();
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int size() {
+        return objectIds.size();
+    }
+
+    public void clear() {
+        objectIds.clear();
+        blobs.clear();
+    }
+}
@@ -22,7 +22,8 @@ package org.spldev.varcs.git;
 
 import de.featjar.util.logging.Logger;
 import java.io.*;
-import java.text.*;
+import java.time.*;
+import java.time.format.*;
 import java.util.*;
 import java.util.stream.*;
 import org.eclipse.jgit.api.*;
@@ -34,7 +35,8 @@ import org.spldev.varcs.structure.*;
 
 public class GitUtils {
 
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm");
+    private static final DateTimeFormatter dateFormat =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
 
     private final Git git;
     private final Repository repository;
@@ -70,7 +72,8 @@ public class GitUtils {
     public String getCommitString(RevCommit commit) {
         try {
             return objectReader.abbreviate(commit.toObjectId()).name() + ": "
-                    + dateFormat.format(commit.getCommitterIdent().getWhen()) + " - " + commit.getShortMessage();
+                    + dateFormat.format(commit.getCommitterIdent().getWhen().toInstant()) + " - "
+                    + commit.getShortMessage();
         } catch (final IOException e) {
             Logger.logError(e);
             return "";
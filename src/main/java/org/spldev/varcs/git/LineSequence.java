@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs.git;
+
+import it.unimi.dsi.fastutil.ints.*;
+import java.nio.charset.*;
+import java.util.*;
+import org.eclipse.jgit.diff.*;
+
+public class LineSequence extends Sequence {
+
+    public static final SequenceComparator<LineSequence> COMPARATOR = new SequenceComparator<LineSequence>() {
+        @Override
+        public boolean equals(LineSequence a, int ai, LineSequence b, int bi) {
+            return (a.hashes[ai] == b.hashes[bi]) && a.lineEquals(ai, b, bi);
+        }
+
+        @Override
+        public int hash(LineSequence seq, int ptr) {
+            return seq.hashes[ptr];
+        }
+    };
+
+    private final byte[] content;
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] hashes;
+    private final String[] lines;
+
+    public LineSequence(List<String> lines) {
+        final int lineCount = lines.size();
+        content = null;
+        starts = null;
+        ends = null;
+        hashes = new int[lineCount];
+        this.lines = lines.toArray(new String[lineCount]);
+        for (int i = 0; i < lineCount; i++) {
+            hashes[i] = this.lines[i].hashCode();
+        }
+    }
+
+    public LineSequence(byte[] content) {
+        this.content = content;
+        final IntArrayList startList = new IntArrayList();
+        final IntArrayList endList = new IntArrayList();
+        final IntArrayList hashList = new IntArrayList();
+        final ArrayList<String> decodedLines = new ArrayList<>();
+        int start = 0;
+        int hash = 0;
+        boolean ascii = true;
+        for (int i = 0; i <= content.length; i++) {
+            final byte b = (i < content.length) ? content[i] : (byte) '\n';
+            if ((b == '\n') || (b == '\r')) {
+                if ((i < content.length) || (start < content.length)) {
+                    final String line = ascii ? null : decode(start, i);
+                    startList.add(start);
+                    endList.add(i);
+                    hashList.add(ascii ? hash : line.hashCode());
+                    decodedLines.add(line);
+                }
+                if ((b == '\r') && ((i + 1) < content.length) && (content[i + 1] == '\n')) {
+                    i++;
+                }
+                start = i + 1;
+                hash = 0;
+                ascii = true;
+            } else {
+                hash = (31 * hash) + b;
+                ascii &= b >= 0;
+            }
+        }
+        starts = startList.toIntArray();
+        ends = endList.toIntArray();
+        hashes = hashList.toIntArray();
+        lines = decodedLines.toArray(new String[decodedLines.size()]);
+    }
+
+    @Override
+    public int size() {
+        return hashes.length;
+    }
+
+    public String getLine(int index) {
+        String line = lines[index];
+        if (line == null) {
+            line = new String(content, starts[index], ends[index] - starts[index], StandardCharsets.US_ASCII);
+            lines[index] = line;
+        }
+        return line;
+    }
+
+    private String decode(int start, int end) {
+        return new String(content, start, end - start, Charset.defaultCharset());
+    }
+
+    private boolean lineEquals(int index, LineSequence other, int otherIndex) {
+        final String line = lines[index];
+        final String otherLine = other.lines[otherIndex];
+        if ((line != null) && (otherLine != null)) {
+            return line.equals(otherLine);
+        } else if (line != null) {
+            return other.asciiEquals(otherIndex, line);
+        } else if (otherLine != null) {
+            return asciiEquals(index, otherLine);
+        } else {
+            return Arrays.equals(
+                    content,
+                    starts[index],
+                    ends[index],
+                    other.content,
+                    other.starts[otherIndex],
+                    other.ends[otherIndex]);
+        }
+    }
+
+    private boolean asciiEquals(int index, String line) {
+        final int start = starts[index];
+        final int length = ends[index] - start;
+        if (line.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (line.charAt(i) != content[start + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -24,16 +24,23 @@ import java.io.*;
 import java.nio.file.*;
 import java.util.*;
 import java.util.zip.*;
+import org.spldev.varcs.git.*;
 import org.spldev.varcs.structure.*;
 
 public class BinaryFileIO extends ByteIO<BinaryFileNode> {
 
+    private final BlobStore blobStore;
+
+    private BinaryFileIO(BlobStore blobStore) {
+        this.blobStore = blobStore;
+    }
+
     public static void write(BinaryFileNode fileMap, Path path) throws IOException {
-        new BinaryFileIO().writeFile(fileMap, path);
+        new BinaryFileIO(null).writeFile(fileMap, path);
     }
 
-    public static BinaryFileNode read(Path path) throws IOException {
-        return new BinaryFileIO().readFile(path);
+    public static BinaryFileNode read(Path path, BlobStore blobStore) throws IOException {
+        return new BinaryFileIO(blobStore).readFile(path);
     }
 
     @Override
@@ -49,7 +56,7 @@ public class BinaryFileIO extends ByteIO<BinaryFileNode> {
     private void writeConditions(BinaryFileNode fileNode) throws IOException {
         int lastCondition = -2;
         int countCondition = -1;
-        for (final DataNode<byte[]> lineNode : fileNode.getDataNodes()) {
+        for (final BlobNode lineNode : fileNode.getDataNodes()) {
             final int condition = lineNode.getCondition();
             if (lastCondition == condition) {
                 countCondition--;
@@ -68,8 +75,9 @@ public class BinaryFileIO extends ByteIO<BinaryFileNode> {
         }
     }
 
-    private void writeData(List<DataNode<byte[]>> lineNodes) throws IOException {
-        for (final DataNode<byte[]> lineNode : lineNodes) {
+    private void writeData(List<BlobNode> lineNodes) throws IOException {
+        // Each getData() of an extracted node reads the blob from the repository once more.
+        for (final BlobNode lineNode : lineNodes) {
             final ByteArrayOutputStream os = new ByteArrayOutputStream();
             try (DeflaterOutputStream dos = new DeflaterOutputStream(os)) {
                 dos.write(lineNode.getData());
@@ -89,7 +97,7 @@ public class BinaryFileIO extends ByteIO<BinaryFileNode> {
         final byte[][] binaryData = readBinaryData(numberOfData);
 
         for (int j = 0; j < numberOfData; j++) {
-            final DataNode<byte[]> dataNode = new DataNode<>(binaryData[j], conditions[j]);
+            final BlobNode dataNode = new BlobNode(blobStore, blobStore.put(binaryData[j]), conditions[j]);
             fileNode.getDataNodes().add(dataNode);
         }
 
@@ -47,6 +47,8 @@ public class ConditionIO extends ByteIO<NodeDictionary> {
     protected static final byte BYTE_BEGIN = 8;
     protected static final byte BYTE_END = 9;
 
+    protected static final int BDD_FORMAT = -1;
+
     protected Literal[] literals;
     protected HashMap<Node, Node> nodeMap;
     protected ArrayList<Node> nodeStack;
@@ -59,10 +61,17 @@ public class ConditionIO extends ByteIO<NodeDictionary> {
         this.nodes = nodes;
         nodes.refreshVariableIndex();
 
+        if (nodes instanceof BDDNodeDictionary) {
+            writeInt(BDD_FORMAT);
+        }
         writeInt(nodes.getVariables().size());
         for (final String variableName : nodes.getVariables()) {
             writeString(variableName);
         }
+        if (nodes instanceof BDDNodeDictionary) {
+            writeBDD((BDDNodeDictionary) nodes);
+            return;
+        }
 
         writeInt(nodes.getConditions().size());
         for (final Node node : nodes.getConditions()) {
@@ -72,14 +81,20 @@ public class ConditionIO extends ByteIO<NodeDictionary> {
 
     @Override
     public NodeDictionary read() throws IOException {
-        nodes = new NodeDictionary();
-        numberOfVariables = readInt();
+        final int header = readInt();
+        final boolean bdd = header == BDD_FORMAT;
+        nodes = bdd ? new BDDNodeDictionary() : new NodeDictionary();
+        numberOfVariables = bdd ? readInt() : header;
         literals = new Literal[2 * numberOfVariables];
         for (int i = 0; i < numberOfVariables; i++) {
             final String literalVar = readString();
+            nodes.putVariable(literalVar);
             literals[i] = new Literal(literalVar, true);
             literals[i + numberOfVariables] = new Literal(literalVar, false);
         }
+        if (bdd) {
+            return readBDD((BDDNodeDictionary) nodes);
+        }
 
         nodeMap = new HashMap<>();
         nodeStack = new ArrayList<>();
@@ -98,6 +113,39 @@ public class ConditionIO extends ByteIO<NodeDictionary> {
         return nodes;
     }
 
+    protected void writeBDD(BDDNodeDictionary bddNodes) throws IOException {
+        final int numberOfNodes = bddNodes.getNodeCount();
+        writeInt(numberOfNodes);
+        for (int i = BDDNodeDictionary.TRUE + 1; i < numberOfNodes; i++) {
+            writeInt(bddNodes.getNodeVariable(i));
+            writeInt(bddNodes.getNodeLow(i));
+            writeInt(bddNodes.getNodeHigh(i));
+        }
+        final int numberOfConditions = bddNodes.getConditionCount();
+        writeInt(numberOfConditions);
+        for (int i = 0; i < numberOfConditions; i++) {
+            writeInt(bddNodes.getRoot(i));
+        }
+    }
+
+    protected BDDNodeDictionary readBDD(BDDNodeDictionary bddNodes) throws IOException {
+        final int numberOfNodes = readInt();
+        final int[] nodeMap = new int[numberOfNodes];
+        nodeMap[BDDNodeDictionary.FALSE] = BDDNodeDictionary.FALSE;
+        nodeMap[BDDNodeDictionary.TRUE] = BDDNodeDictionary.TRUE;
+        for (int i = BDDNodeDictionary.TRUE + 1; i < numberOfNodes; i++) {
+            final int variable = readInt();
+            final int low = nodeMap[readInt()];
+            final int high = nodeMap[readInt()];
+            nodeMap[i] = bddNodes.putNode(variable, low, high);
+        }
+        final int numberOfConditions = readInt();
+        for (int i = 0; i < numberOfConditions; i++) {
+            bddNodes.putRoot(nodeMap[readInt()]);
+        }
+        return bddNodes;
+    }
+
     protected void writeNode(Node node) throws IOException {
         if (node != null) {
             writeNodeRec(node);
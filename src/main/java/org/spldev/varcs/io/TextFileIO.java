@@ -25,16 +25,23 @@ import java.nio.charset.*;
 import java.nio.file.*;
 import java.util.*;
 import java.util.zip.*;
+import org.spldev.varcs.*;
 import org.spldev.varcs.structure.*;
 
 public class TextFileIO extends ByteIO<TextFileNode> {
 
+    private final LinePool linePool;
+
+    private TextFileIO(LinePool linePool) {
+        this.linePool = linePool;
+    }
+
     public static void write(TextFileNode fileMap, Path path) throws IOException {
-        new TextFileIO().writeFile(fileMap, path);
+        new TextFileIO(null).writeFile(fileMap, path);
     }
 
-    public static TextFileNode read(Path path) throws IOException {
-        return new TextFileIO().readFile(path);
+    public static TextFileNode read(Path path, LinePool linePool) throws IOException {
+        return new TextFileIO(linePool).readFile(path);
     }
 
     @Override
@@ -116,7 +123,7 @@ public class TextFileIO extends ByteIO<TextFileNode> {
         final String[] lines = readLines();
 
         for (int j = 0; j < numberOfData; j++) {
-            final LineNode lineNode = new LineNode(lines[j], conditions[j]);
+            final LineNode lineNode = new LineNode(linePool.intern(lines[j]), conditions[j]);
             lineNode.setPresenceCondition(presenceConditions[j]);
             fileNode.getDataNodes().add(lineNode);
         }
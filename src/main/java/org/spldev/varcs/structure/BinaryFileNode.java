@@ -20,7 +20,7 @@
  */
 package org.spldev.varcs.structure;
 
-public class BinaryFileNode extends FileNode<DataNode<byte[]>> {
+public class BinaryFileNode extends FileNode<BlobNode> {
 
     public BinaryFileNode(String path) {
         super(path);
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs.structure;
+
+import org.eclipse.jgit.lib.*;
+import org.spldev.varcs.git.*;
+
+public class BlobNode extends DataNode<byte[]> {
+
+    private final BlobStore blobStore;
+    private final ObjectId objectId;
+
+    public BlobNode(BlobStore blobStore, ObjectId objectId, int conditionIndex) {
+        super(null, conditionIndex);
+        this.blobStore = blobStore;
+        this.objectId = objectId;
+    }
+
+    public ObjectId getObjectId() {
+        return objectId;
+    }
+
+    @Override
+    public byte[] getData() {
+        return blobStore.get(objectId);
+    }
+
+    @Override
+    public String toString() {
+        return objectId.name();
+    }
+}
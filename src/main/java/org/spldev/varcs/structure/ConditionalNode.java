@@ -20,7 +20,6 @@
  */
 package org.spldev.varcs.structure;
 
-import java.util.*;
 import org.spldev.varcs.*;
 
 public class ConditionalNode {
@@ -35,7 +34,7 @@ public class ConditionalNode {
         this.conditionIndex = conditionIndex;
     }
 
-    public boolean isActive(Map<Object, Boolean> assignment, NodeDictionary nodeDictionary) {
-        return nodeDictionary.getCondition(conditionIndex).getValue(assignment) == true;
+    public boolean isActive(VariableAssignment assignment, NodeDictionary nodeDictionary) {
+        return nodeDictionary.evaluate(getCondition(), assignment);
     }
 }
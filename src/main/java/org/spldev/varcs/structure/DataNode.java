@@ -36,6 +36,6 @@ public class DataNode<T> extends ConditionalNode {
 
     @Override
     public String toString() {
-        return String.valueOf(data);
+        return String.valueOf(getData());
     }
 }
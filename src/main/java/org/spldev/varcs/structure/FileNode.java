@@ -22,15 +22,23 @@ package org.spldev.varcs.structure;
 
 import java.util.*;
 import java.util.stream.*;
+import org.roaringbitmap.*;
 import org.spldev.varcs.*;
 
 public abstract class FileNode<T extends DataNode<?>> extends ConditionalNode {
 
-    protected final List<T> data = new ArrayList<>();
+    protected List<T> data;
     protected final String path;
 
+    private RoaringBitmap modifyingCommits;
+
     public FileNode(String path) {
+        this(path, new ArrayList<>());
+    }
+
+    protected FileNode(String path, List<T> data) {
         this.path = path;
+        this.data = data;
     }
 
     public String getPath() {
@@ -41,8 +49,19 @@ public abstract class FileNode<T extends DataNode<?>> extends ConditionalNode {
         return data;
     }
 
-    public Stream<T> getActiveData(Map<Object, Boolean> assignment, NodeDictionary nodeDictionary) {
-        return data.stream().filter(node -> node.isActive(assignment, nodeDictionary));
+    public void addModifyingCommit(int commitId) {
+        if (modifyingCommits == null) {
+            modifyingCommits = new RoaringBitmap();
+        }
+        modifyingCommits.add(commitId);
+    }
+
+    public boolean isModifiedByAny(RoaringBitmap commitIds) {
+        return (modifyingCommits != null) && RoaringBitmap.intersects(modifyingCommits, commitIds);
+    }
+
+    public Stream<T> getActiveData(VariableAssignment assignment, NodeDictionary nodeDictionary) {
+        return getDataNodes().stream().filter(node -> node.isActive(assignment, nodeDictionary));
     }
 
     @Override
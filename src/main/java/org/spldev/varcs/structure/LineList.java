@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs.structure;
+
+import java.util.*;
+import org.prop4j.*;
+
+class LineList extends AbstractList<LineNode> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] lines = new String[0];
+    private int[] conditions = new int[0];
+    private int[] presenceConditions = new int[0];
+    // Only allocated while a line has pending preprocessor conditions.
+    private Object[] ppConditions;
+    private int ppConditionCount;
+    private int size;
+    private int gapStart;
+    private int gapLength;
+
+    private class LineView extends LineNode {
+
+        private final int row;
+
+        private LineView(int row) {
+            super(null, -1);
+            this.row = row;
+        }
+
+        @Override
+        public String getData() {
+            return getLine(row);
+        }
+
+        @Override
+        public int getCondition() {
+            return LineList.this.getCondition(row);
+        }
+
+        @Override
+        public void setCondition(int conditionIndex) {
+            LineList.this.setCondition(row, conditionIndex);
+        }
+
+        @Override
+        public int getPresenceCondition() {
+            return LineList.this.getPresenceCondition(row);
+        }
+
+        @Override
+        public void setPresenceCondition(int presenceCondition) {
+            LineList.this.setPresenceCondition(row, presenceCondition);
+        }
+
+        @Override
+        public List<Node> getPPConditions() {
+            return LineList.this.getPPConditions(row);
+        }
+
+        @Override
+        public void setPPConditions(List<Node> ppCondition) {
+            LineList.this.setPPConditions(row, ppCondition);
+        }
+    }
+
+    @Override
+    public LineNode get(int index) {
+        Objects.checkIndex(index, size);
+        return new LineView(index);
+    }
+
+    @Override
+    public LineNode set(int index, LineNode lineNode) {
+        final LineNode oldLineNode = copy(index);
+        write(index, lineNode);
+        return oldLineNode;
+    }
+
+    @Override
+    public void add(int index, LineNode lineNode) {
+        Objects.checkIndex(index, size + 1);
+        if (gapLength == 0) {
+            grow();
+        }
+        moveGap(index);
+        gapStart++;
+        gapLength--;
+        size++;
+        modCount++;
+        if (ppConditions != null) {
+            // Moving the gap leaves stale copies in it.
+            ppConditions[index] = null;
+        }
+        write(index, lineNode);
+    }
+
+    @Override
+    public LineNode remove(int index) {
+        final LineNode oldLineNode = copy(index);
+        moveGap(index);
+        lines[gapStart + gapLength] = null;
+        if (ppConditions != null) {
+            setPPCondition(gapStart + gapLength, null);
+        }
+        gapLength++;
+        size--;
+        modCount++;
+        return oldLineNode;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(lines, null);
+        ppConditions = null;
+        ppConditionCount = 0;
+        gapStart = 0;
+        gapLength = lines.length;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    long getCharacterCount() {
+        long count = 0;
+        for (int i = 0; i < size; i++) {
+            count += lines[physical(i)].length();
+        }
+        return count;
+    }
+
+    boolean hasPPConditions() {
+        return ppConditionCount > 0;
+    }
+
+    String getLine(int index) {
+        return lines[physical(index)];
+    }
+
+    int getCondition(int index) {
+        return conditions[physical(index)];
+    }
+
+    void setCondition(int index, int condition) {
+        conditions[physical(index)] = condition;
+    }
+
+    int getPresenceCondition(int index) {
+        return presenceConditions[physical(index)];
+    }
+
+    void setPresenceCondition(int index, int presenceCondition) {
+        presenceConditions[physical(index)] = presenceCondition;
+    }
+
+    private int physical(int index) {
+        return index < gapStart ? index : index + gapLength;
+    }
+
+    private void moveGap(int index) {
+        if (index < gapStart) {
+            moveColumns(index, index + gapLength, gapStart - index);
+        } else if (index > gapStart) {
+            moveColumns(gapStart + gapLength, gapStart, index - gapStart);
+        }
+        gapStart = index;
+    }
+
+    private void moveColumns(int from, int to, int length) {
+        System.arraycopy(lines, from, lines, to, length);
+        System.arraycopy(conditions, from, conditions, to, length);
+        System.arraycopy(presenceConditions, from, presenceConditions, to, length);
+        if (ppConditions != null) {
+            System.arraycopy(ppConditions, from, ppConditions, to, length);
+        }
+    }
+
+    private void grow() {
+        final int capacity = Math.max(INITIAL_CAPACITY, lines.length + (lines.length >> 1));
+        final int tail = size - gapStart;
+        final int newGapLength = capacity - size;
+        lines = grow(lines, new String[capacity], tail, newGapLength);
+        conditions = grow(conditions, new int[capacity], tail, newGapLength);
+        presenceConditions = grow(presenceConditions, new int[capacity], tail, newGapLength);
+        if (ppConditions != null) {
+            ppConditions = grow(ppConditions, new Object[capacity], tail, newGapLength);
+        }
+        gapLength = newGapLength;
+    }
+
+    private <A> A grow(A column, A newColumn, int tail, int newGapLength) {
+        System.arraycopy(column, 0, newColumn, 0, gapStart);
+        System.arraycopy(column, gapStart + gapLength, newColumn, gapStart + newGapLength, tail);
+        return newColumn;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Node> getPPConditions(int index) {
+        return ppConditions != null ? (List<Node>) ppConditions[physical(index)] : null;
+    }
+
+    private void setPPConditions(int index, List<Node> ppCondition) {
+        if (ppConditions == null) {
+            if (ppCondition == null) {
+                return;
+            }
+            ppConditions = new Object[lines.length];
+        }
+        setPPCondition(physical(index), ppCondition);
+    }
+
+    private void setPPCondition(int position, List<Node> ppCondition) {
+        if (ppConditions[position] != null) {
+            ppConditionCount--;
+        }
+        if (ppCondition != null) {
+            ppConditionCount++;
+        }
+        ppConditions[position] = ppCondition;
+        if (ppConditionCount == 0) {
+            ppConditions = null;
+        }
+    }
+
+    private LineNode copy(int index) {
+        Objects.checkIndex(index, size);
+        final LineNode lineNode = new LineNode(getLine(index), getCondition(index));
+        lineNode.setPresenceCondition(getPresenceCondition(index));
+        lineNode.setPPConditions(getPPConditions(index));
+        return lineNode;
+    }
+
+    private void write(int index, LineNode lineNode) {
+        final int position = physical(index);
+        lines[position] = lineNode.getData();
+        conditions[position] = lineNode.getCondition();
+        presenceConditions[position] = lineNode.getPresenceCondition();
+        setPPConditions(index, lineNode.getPPConditions());
+    }
+}
@@ -50,9 +50,10 @@ public class LineNode extends DataNode<String> {
     }
 
     public void buildPresenceCondition(FileMap fileMap) {
+        final List<Node> ppConditions = getPPConditions();
         if (ppConditions != null) {
             setPresenceCondition(fileMap.getConditionDictionary().getIndexSynced(new Or(ppConditions)));
-            ppConditions = null;
+            setPPConditions(null);
         }
     }
 }
@@ -20,9 +20,111 @@
  */
 package org.spldev.varcs.structure;
 
+import java.util.*;
+import org.spldev.varcs.*;
+
 public class TextFileNode extends FileNode<LineNode> {
 
+    private FileSpill fileSpill;
+    private volatile boolean spilled;
+    private volatile long lastAccess = -1;
+
     public TextFileNode(String path) {
-        super(path);
+        super(path, new LineList());
+    }
+
+    public void setFileSpill(FileSpill fileSpill) {
+        this.fileSpill = fileSpill;
+    }
+
+    public boolean isSpilled() {
+        return spilled;
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    public void unload() {
+        data = null;
+        spilled = true;
+    }
+
+    public void reload(TextFileNode fileNode) {
+        data = fileNode.data;
+        spilled = false;
+    }
+
+    private LineList lines() {
+        if (fileSpill != null) {
+            if (spilled) {
+                fileSpill.load(this);
+            }
+            final long clock = fileSpill.getClock();
+            if (lastAccess != clock) {
+                lastAccess = clock;
+                fileSpill.touch(this);
+            }
+        }
+        return (LineList) data;
+    }
+
+    @Override
+    public List<LineNode> getDataNodes() {
+        return lines();
+    }
+
+    public int getLoadedLineCount() {
+        final List<LineNode> lines = data;
+        return lines != null ? lines.size() : 0;
+    }
+
+    public long getLoadedCharacterCount() {
+        final LineList lines = (LineList) data;
+        return lines != null ? lines.getCharacterCount() : 0;
+    }
+
+    // The distinct line and presence conditions of the loaded lines, sorted.
+    public int[] getLoadedConditions() {
+        final LineList lines = (LineList) data;
+        if (lines == null) {
+            return new int[0];
+        }
+        final int lineCount = lines.size();
+        final int[] conditions = new int[2 * lineCount];
+        for (int i = 0; i < lineCount; i++) {
+            conditions[2 * i] = lines.getCondition(i);
+            conditions[(2 * i) + 1] = lines.getPresenceCondition(i);
+        }
+        return Arrays.stream(conditions).filter(c -> c >= 0).sorted().distinct().toArray();
+    }
+
+    public boolean hasPendingPPConditions() {
+        final LineList lines = (LineList) data;
+        return (lines != null) && lines.hasPPConditions();
+    }
+
+    public int getLineCount() {
+        return lines().size();
+    }
+
+    public String getLine(int index) {
+        return lines().getLine(index);
+    }
+
+    public int getLineCondition(int index) {
+        return lines().getCondition(index);
+    }
+
+    public void setLineCondition(int index, int condition) {
+        lines().setCondition(index, condition);
+    }
+
+    public int getLinePresenceCondition(int index) {
+        return lines().getPresenceCondition(index);
+    }
+
+    public void setLinePresenceCondition(int index, int presenceCondition) {
+        lines().setPresenceCondition(index, presenceCondition);
     }
 }
@@ -25,20 +25,18 @@ import de.featjar.util.tree.visitor.TreeVisitor;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.prop4j.And;
 import org.prop4j.Literal;
 import org.prop4j.Node;
+import org.spldev.varcs.CommitReachability;
 import org.spldev.varcs.FileMap;
 import org.spldev.varcs.Main;
 import org.spldev.varcs.NodeDictionary;
+import org.spldev.varcs.VariableAssignment;
 import org.spldev.varcs.analyzer.cpp.PresenceConditionReader;
 import org.spldev.varcs.git.GitUtils;
 import org.spldev.varcs.structure.CommitNode;
@@ -54,14 +52,14 @@ public class AnnotationExtractor implements TreeVisitor<Void, CommitNode>, Consu
 
     private final FileMap fileMap;
     private final NodeDictionary conditionDictionary;
-    private final Set<Literal> literals;
-    private final HashMap<CommitNode, Map<Object, Boolean>> visitedNodes = new HashMap<>();
+    private final CommitAssignments visitedNodes;
 
-    public AnnotationExtractor(GitUtils gitUtils, FileMap fileMap, Node formula) {
+    public AnnotationExtractor(GitUtils gitUtils, FileMap fileMap, Node formula, CommitReachability reachability) {
         this.gitUtils = gitUtils;
         this.fileMap = fileMap;
-        literals = formula.getUniqueLiterals();
         conditionDictionary = fileMap.getConditionDictionary();
+        conditionDictionary.putVariables(formula);
+        visitedNodes = new CommitAssignments(conditionDictionary, reachability);
     }
 
     @Override
@@ -75,31 +73,17 @@ public class AnnotationExtractor implements TreeVisitor<Void, CommitNode>, Consu
     }
 
     public VisitorResult extract(CommitNode currentCommit) {
-        for (final CommitNode parent : currentCommit.getParents()) {
-            final Map<Object, Boolean> parentAssignment = visitedNodes.get(parent);
-            if (parentAssignment == null) {
-                return VisitorResult.SkipChildren;
-            }
+        if (!visitedNodes.hasAllParents(currentCommit)) {
+            return VisitorResult.SkipChildren;
         }
 
-        final Map<Object, Boolean> assignment = new HashMap<>();
-        for (final Literal literal : literals) {
-            assignment.put(literal.var, Boolean.FALSE);
-        }
-        for (final CommitNode parent : currentCommit.getParents()) {
-            final Map<Object, Boolean> parentAssignment = visitedNodes.get(parent);
-            for (final Entry<Object, Boolean> entry : parentAssignment.entrySet()) {
-                if (entry.getValue()) {
-                    assignment.put(entry.getKey(), entry.getValue());
-                }
-            }
-        }
         try {
             Logger.logProgress(visitedNodes.size() + ": " + gitUtils.getCommitString(currentCommit));
             final String curCommitId = gitUtils.getVariable(currentCommit).orElseThrow(NullPointerException::new);
-            assignment.put(curCommitId, Boolean.TRUE);
-            if (visitedNodes.putIfAbsent(currentCommit, assignment) == null) {
+            if (!visitedNodes.contains(currentCommit)) {
+                final VariableAssignment assignment = visitedNodes.create(currentCommit, curCommitId);
                 extractAnnotations(currentCommit, assignment);
+                visitedNodes.release(currentCommit);
             }
             return VisitorResult.Continue;
         } catch (final Exception e) {
@@ -108,7 +92,7 @@ public class AnnotationExtractor implements TreeVisitor<Void, CommitNode>, Consu
         }
     }
 
-    public void extractAnnotations(CommitNode curCommit, Map<Object, Boolean> assignment) {
+    public void extractAnnotations(CommitNode curCommit, VariableAssignment assignment) {
         Main.tabFormatter.incTabLevel();
 
         final Literal commitLiteral =
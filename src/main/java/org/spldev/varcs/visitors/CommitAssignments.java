@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.spldev.varcs.visitors;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import org.roaringbitmap.IntIterator;
+import org.spldev.varcs.CommitAssignment;
+import org.spldev.varcs.CommitReachability;
+import org.spldev.varcs.NodeDictionary;
+import org.spldev.varcs.VariableAssignment;
+import org.spldev.varcs.structure.CommitNode;
+
+public class CommitAssignments {
+
+    private NodeDictionary nodeDictionary;
+    private final CommitReachability reachability;
+
+    private final HashMap<CommitNode, CommitAssignment> assignments = new HashMap<>();
+    private final BitSet processedCommits = new BitSet();
+    private final BitSet releasedCommits = new BitSet();
+    private final int[] remainingChildren;
+    private int processedCount = 0;
+
+    private int[] variableToCommit = new int[0];
+    private int[] commitToVariable;
+
+    public CommitAssignments(NodeDictionary nodeDictionary, CommitReachability reachability) {
+        this.nodeDictionary = nodeDictionary;
+        this.reachability = reachability;
+        commitToVariable = new int[reachability.getCommitCount()];
+        remainingChildren = new int[reachability.getCommitCount()];
+        refreshVariables();
+    }
+
+    private void refreshVariables() {
+        final int variableCount = nodeDictionary.getVariableCount();
+        variableToCommit = new int[variableCount];
+        Arrays.fill(commitToVariable, -1);
+        for (int i = 0; i < variableCount; i++) {
+            final int commitId = reachability.getCommitId(nodeDictionary.getVariable(i));
+            variableToCommit[i] = commitId;
+            if (commitId >= 0) {
+                commitToVariable[commitId] = i;
+            }
+        }
+    }
+
+    public synchronized void setNodeDictionary(NodeDictionary nodeDictionary) {
+        this.nodeDictionary = nodeDictionary;
+        for (final CommitAssignment assignment : assignments.values()) {
+            assignment.clearTruthValues();
+        }
+        refreshVariables();
+    }
+
+    public synchronized int size() {
+        return processedCount;
+    }
+
+    public synchronized boolean contains(CommitNode commit) {
+        final int commitId = reachability.getCommitId(commit);
+        return (commitId >= 0) && processedCommits.get(commitId);
+    }
+
+    public synchronized boolean hasAllParents(CommitNode commit) {
+        for (final CommitNode parent : commit.getParents()) {
+            if (!contains(parent)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public synchronized VariableAssignment create(CommitNode commit, String commitVariable) {
+        final int commitId = reachability.getCommitId(commit);
+        if (commitId < 0) {
+            throw new IllegalArgumentException("Unknown commit " + commitVariable);
+        }
+        if (processedCommits.get(commitId)) {
+            final CommitAssignment existingAssignment = assignments.get(commit);
+            if (existingAssignment == null) {
+                throw new IllegalStateException("Assignment already released for commit " + commitVariable);
+            }
+            return existingAssignment;
+        }
+        final int variableIndex = nodeDictionary.putVariable(commitVariable);
+        if (variableIndex >= variableToCommit.length) {
+            refreshVariables();
+        }
+        final Iterator<CommitNode> parents = commit.getParents().iterator();
+        final CommitAssignment assignment;
+        if (parents.hasNext()) {
+            final CommitNode firstParent = parents.next();
+            final CommitAssignment firstParentAssignment = assignments.get(firstParent);
+            assignment = new CommitAssignment(
+                    reachability,
+                    variableToCommit,
+                    commitId,
+                    firstParentAssignment,
+                    isLastChild(firstParent));
+            nodeDictionary.resetTruthValues(assignment, variableIndex);
+            if (parents.hasNext()) {
+                resetMergedTruthValues(assignment, commit);
+            }
+        } else {
+            assignment = new CommitAssignment(reachability, variableToCommit, commitId);
+        }
+        assignments.put(commit, assignment);
+        processedCommits.set(commitId);
+        processedCount++;
+        remainingChildren[commitId] = commit.getChildren().size();
+        return assignment;
+    }
+
+    private void resetMergedTruthValues(CommitAssignment assignment, CommitNode commit) {
+        final IntIterator mergedAncestors = reachability.getMergedAncestors(commit).getIntIterator();
+        while (mergedAncestors.hasNext()) {
+            final int variableIndex = commitToVariable[mergedAncestors.next()];
+            if (variableIndex >= 0) {
+                nodeDictionary.resetTruthValues(assignment, variableIndex);
+            }
+        }
+    }
+
+    public synchronized void release(CommitNode commit) {
+        final int commitId = reachability.getCommitId(commit);
+        if ((commitId < 0) || !processedCommits.get(commitId) || releasedCommits.get(commitId)) {
+            return;
+        }
+        releasedCommits.set(commitId);
+        for (final CommitNode parent : commit.getParents()) {
+            if (--remainingChildren[reachability.getCommitId(parent)] == 0) {
+                assignments.remove(parent).clearTruthValues();
+            }
+        }
+        if (commit.getChildren().isEmpty()) {
+            assignments.remove(commit).clearTruthValues();
+        }
+    }
+
+    private boolean isLastChild(CommitNode parent) {
+        return remainingChildren[reachability.getCommitId(parent)] == 1;
+    }
+}
@@ -22,63 +22,114 @@ package org.spldev.varcs.visitors;
 
 import de.featjar.util.logging.Logger;
 import de.featjar.util.tree.visitor.TreeVisitor;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.ListIterator;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
-import java.util.TreeSet;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.eclipse.jgit.diff.DiffAlgorithm;
 import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
 import org.eclipse.jgit.diff.Edit;
-import org.eclipse.jgit.diff.Edit.Type;
 import org.eclipse.jgit.diff.EditList;
-import org.eclipse.jgit.diff.RawText;
-import org.eclipse.jgit.diff.RawTextComparator;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.treewalk.TreeWalk;
-import org.prop4j.And;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.roaringbitmap.RoaringBitmap;
 import org.prop4j.Literal;
 import org.prop4j.Node;
-import org.prop4j.Or;
+import org.spldev.varcs.CommitTree;
+import org.spldev.varcs.CommitReachability;
 import org.spldev.varcs.FileMap;
+import org.spldev.varcs.LinePool;
 import org.spldev.varcs.NodeDictionary;
+import org.spldev.varcs.VariableAssignment;
+import org.spldev.varcs.git.BlobPrefetcher;
+import org.spldev.varcs.git.BlobPrefetcher.Prefetch;
+import org.spldev.varcs.git.BlobStore;
 import org.spldev.varcs.git.GitUtils;
+import org.spldev.varcs.git.LineSequence;
 import org.spldev.varcs.structure.BinaryFileNode;
+import org.spldev.varcs.structure.BlobNode;
 import org.spldev.varcs.structure.CommitNode;
-import org.spldev.varcs.structure.DataNode;
 import org.spldev.varcs.structure.LineNode;
 import org.spldev.varcs.structure.TextFileNode;
 
-public class LineExtractor implements TreeVisitor<Void, CommitNode>, Consumer<CommitNode> {
+public class LineExtractor implements TreeVisitor<Void, CommitNode>, Consumer<CommitNode>, Closeable {
 
     private static final DiffAlgorithm algorithm = DiffAlgorithm.getAlgorithm(SupportedAlgorithm.HISTOGRAM);
 
+    public static final int DEFAULT_COMPACTION_INTERVAL = 1000;
+    private static final double COMPACTION_HEAP_RATIO = 0.75;
+    private static final int BATCH_SIZE = 64;
+    private static final int SPILL_INTERVAL = 64;
+    private static final int PATH_LOCK_COUNT = 1024;
+    private static final int PREFETCH_THREAD_COUNT = 4;
+    private static final long PREFETCH_BYTE_BUDGET = 64L << 20;
+
     private final GitUtils gitUtils;
+    private final ForkJoinPool executor;
 
     private final FileMap fileMap;
-    private final NodeDictionary conditionDictionary;
-
-    private final Set<Literal> literals;
-
-    private final HashMap<CommitNode, Map<Object, Boolean>> visitedNodes = new HashMap<>();
-
-    public LineExtractor(GitUtils gitUtils, FileMap fileMap, Node formula) {
+    private final LinePool linePool;
+    private final BlobStore blobStore;
+    private final BlobPrefetcher blobPrefetcher;
+    private NodeDictionary conditionDictionary;
+
+    private final CommitReachability reachability;
+    private final CommitAssignments visitedNodes;
+    private final ReentrantLock[] pathLocks = new ReentrantLock[PATH_LOCK_COUNT];
+
+    private int compactionInterval = DEFAULT_COMPACTION_INTERVAL;
+    private int commitsSinceCompaction = 0;
+    private int liveConditionCount = 0;
+    private int commitsSinceSpill = 0;
+
+    public LineExtractor(
+            GitUtils gitUtils,
+            FileMap fileMap,
+            Node formula,
+            CommitReachability reachability,
+            ForkJoinPool executor) {
         this.gitUtils = gitUtils;
+        this.executor = executor;
         this.fileMap = fileMap;
-        literals = formula.getUniqueLiterals();
+        linePool = fileMap.getLinePool();
+        blobStore = new BlobStore(gitUtils.getRepository());
+        blobPrefetcher = new BlobPrefetcher(gitUtils, PREFETCH_THREAD_COUNT, PREFETCH_BYTE_BUDGET);
         conditionDictionary = fileMap.getConditionDictionary();
+        conditionDictionary.putVariables(formula);
+        this.reachability = reachability;
+        visitedNodes = new CommitAssignments(conditionDictionary, reachability);
+        for (int i = 0; i < pathLocks.length; i++) {
+            pathLocks[i] = new ReentrantLock();
+        }
+    }
+
+    public void setCompactionInterval(int compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
+    @Override
+    public void close() {
+        blobPrefetcher.close();
     }
 
     @Override
@@ -92,31 +143,17 @@ public class LineExtractor implements TreeVisitor<Void, CommitNode>, Consumer<Co
     }
 
     public VisitorResult extract(CommitNode currentCommit) {
-        for (final CommitNode parent : currentCommit.getParents()) {
-            final Map<Object, Boolean> parentAssignment = visitedNodes.get(parent);
-            if (parentAssignment == null) {
-                return VisitorResult.SkipChildren;
-            }
+        if (!visitedNodes.hasAllParents(currentCommit)) {
+            return VisitorResult.SkipChildren;
         }
 
-        final Map<Object, Boolean> assignment = new HashMap<>();
-        for (final Literal literal : literals) {
-            assignment.put(literal.var, Boolean.FALSE);
-        }
-        for (final CommitNode parent : currentCommit.getParents()) {
-            final Map<Object, Boolean> parentAssignment = visitedNodes.get(parent);
-            for (final Entry<Object, Boolean> entry : parentAssignment.entrySet()) {
-                if (entry.getValue()) {
-                    assignment.put(entry.getKey(), entry.getValue());
-                }
-            }
-        }
         try {
             Logger.logProgress(visitedNodes.size() + ": " + gitUtils.getCommitString(currentCommit));
-            final String curCommitId = gitUtils.getVariable(currentCommit).orElseThrow(NullPointerException::new);
-            assignment.put(curCommitId, Boolean.TRUE);
-            visitedNodes.put(currentCommit, assignment);
-            processMerge(currentCommit, assignment);
+            extractCommit(currentCommit);
+            if (isCompactionDue()) {
+                compactConditions();
+            }
+            fileMap.spillColdFiles();
             return VisitorResult.Continue;
         } catch (final Exception e) {
             Logger.logError(e);
@@ -124,67 +161,293 @@ public class LineExtractor implements TreeVisitor<Void, CommitNode>, Consumer<Co
         }
     }
 
-    private void processMerge(CommitNode curCommit, Map<Object, Boolean> assignment) throws Exception {
-        try (TreeWalk treeWalk = new TreeWalk(gitUtils.getRepository())) {
-            treeWalk.addTree(gitUtils.getRepository()
-                    .parseCommit(curCommit.getObjectId())
-                    .getTree());
+    // Extracts independent commits concurrently. The result is equivalent to a sequential traversal, but not
+    // identical: lines that sibling commits insert at the same anchor may end up in either order, and conditions are
+    // numbered in the order in which the workers happen to create them. Like extract, the first failing commit is
+    // logged and stops the extraction once the commits that are still running have finished.
+    public void extractAll(CommitNode commitTree, int parallelism) throws Exception {
+        final HashMap<CommitNode, Integer> remainingParents = new HashMap<>();
+        CommitTree.preOrderStream(commitTree).forEach(commitNode -> {
+            for (final CommitNode child : commitNode.getChildren()) {
+                remainingParents.merge(child, 1, Integer::sum);
+            }
+        });
+        final ArrayDeque<CommitNode> readyCommits = new ArrayDeque<>();
+        readyCommits.add(commitTree);
+
+        // Commits run on the same pool as their batches, which they help to complete while they wait for them.
+        final CompletionService<CommitNode> completionService = new ExecutorCompletionService<>(executor);
+        int runningCommits = 0;
+        boolean compactionPending = false;
+        boolean spillPending = false;
+        boolean failed = false;
+        while ((!failed && !readyCommits.isEmpty()) || (runningCommits > 0)) {
+            if (!failed && (compactionPending || spillPending) && (runningCommits == 0)) {
+                if (compactionPending) {
+                    compactConditions();
+                    compactionPending = false;
+                }
+                if (spillPending) {
+                    fileMap.spillColdFiles();
+                    commitsSinceSpill = 0;
+                    spillPending = false;
+                }
+            }
+            while (!(failed || compactionPending || spillPending)
+                    && !readyCommits.isEmpty()
+                    && (runningCommits < parallelism)) {
+                final CommitNode commit = readyCommits.poll();
+                Logger.logProgress(visitedNodes.size() + ": " + gitUtils.getCommitString(commit));
+                completionService.submit(() -> {
+                    extractCommit(commit);
+                    return commit;
+                });
+                runningCommits++;
+            }
+            if (runningCommits > 0) {
+                final Future<CommitNode> future = completionService.take();
+                runningCommits--;
+                final CommitNode commit;
+                try {
+                    commit = future.get();
+                } catch (final ExecutionException e) {
+                    Logger.logError(e.getCause());
+                    failed = true;
+                    continue;
+                }
+                for (final CommitNode child : commit.getChildren()) {
+                    if (remainingParents.merge(child, -1, Integer::sum) == 0) {
+                        readyCommits.add(child);
+                    }
+                }
+                compactionPending |= isCompactionDue();
+                spillPending |= fileMap.hasFileSpill() && (++commitsSinceSpill >= SPILL_INTERVAL);
+            }
+        }
+        fileMap.spillColdFiles();
+    }
+
+    private void extractCommit(CommitNode currentCommit) throws Exception {
+        final String curCommitId = reachability.getVariable(currentCommit);
+        final VariableAssignment assignment = visitedNodes.create(currentCommit, curCommitId);
+        processMerge(currentCommit, assignment);
+        visitedNodes.release(currentCommit);
+    }
+
+    // Batches run on fork-join workers, so waiting for a contended path lock is a managed block.
+    private ReentrantLock lockPath(String path) throws InterruptedException {
+        final ReentrantLock lock = pathLocks[(path.hashCode() & Integer.MAX_VALUE) % pathLocks.length];
+        if (!lock.tryLock()) {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() {
+                    lock.lock();
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return lock.tryLock();
+                }
+            });
+        }
+        return lock;
+    }
+
+    private boolean isCompactionDue() {
+        if (compactionInterval <= 0) {
+            return false;
+        }
+        commitsSinceCompaction++;
+        if (conditionDictionary.getConditionCount() < (2 * liveConditionCount)) {
+            return false;
+        }
+        if (commitsSinceCompaction >= compactionInterval) {
+            return true;
+        }
+        final Runtime runtime = Runtime.getRuntime();
+        final long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+        return usedMemory > (COMPACTION_HEAP_RATIO * runtime.maxMemory());
+    }
+
+    private void compactConditions() {
+        final int conditionCount = conditionDictionary.getConditionCount();
+        fileMap.compactNodeDictionary();
+        conditionDictionary = fileMap.getConditionDictionary();
+        visitedNodes.setNodeDictionary(conditionDictionary);
+        liveConditionCount = conditionDictionary.getConditionCount();
+        commitsSinceCompaction = 0;
+        Logger.logDebug("Compacted conditions from " + conditionCount + " to " + liveConditionCount);
+    }
+
+    private void processMerge(CommitNode curCommit, VariableAssignment assignment) throws Exception {
+        final Repository repository = gitUtils.getRepository();
+        try (TreeWalk treeWalk = new TreeWalk(repository)) {
+            final RevTree tree = repository.parseCommit(curCommit.getObjectId()).getTree();
+            treeWalk.addTree(tree);
             treeWalk.setRecursive(true);
-            final String curCommitId = gitUtils.getVariable(curCommit).orElseThrow(NullPointerException::new);
+
+            final boolean changesOnly = curCommit.getParents().size() == 1;
+            RoaringBitmap mergedAncestors = null;
+            if (!curCommit.getParents().isEmpty()) {
+                final CommitNode parentCommit = curCommit.getParents().iterator().next();
+                final RevTree parentTree =
+                        repository.parseCommit(parentCommit.getObjectId()).getTree();
+                if (changesOnly && tree.equals(parentTree)) {
+                    return;
+                }
+                treeWalk.addTree(parentTree);
+                if (changesOnly) {
+                    treeWalk.setFilter(TreeFilter.ANY_DIFF);
+                } else {
+                    mergedAncestors = reachability.getMergedAncestors(curCommit);
+                }
+            }
+            final String curCommitId = reachability.getVariable(curCommit);
 
             final HashSet<String> fileNodeSet = new HashSet<>();
-            final Set<String> syncedfileNodeSet = Collections.synchronizedSet(fileNodeSet);
+            final int commitId = reachability.getCommitId(curCommit);
+            final CommitAnalyzer analyzer = new CommitAnalyzer(
+                    curCommitId, commitId, assignment, Collections.synchronizedSet(fileNodeSet), mergedAncestors);
+
+            final List<Future<?>> futures = new ArrayList<>();
+            List<ChangedPath> batch = new ArrayList<>(BATCH_SIZE);
+            try {
+                while (treeWalk.next()) {
+                    final ObjectId objectId = treeWalk.getObjectId(0);
+                    final String pathString = treeWalk.getPathString();
+                    if ((mergedAncestors != null) && treeWalk.idEqual(0, 1)) {
+                        batch.add(new ChangedPath(objectId, pathString, null));
+                    } else {
+                        final long size = blobPrefetcher.getSize(treeWalk.getObjectReader(), objectId);
+                        Prefetch prefetch = blobPrefetcher.tryPrefetch(objectId, size);
+                        if (prefetch == null) {
+                            if (!batch.isEmpty()) {
+                                futures.add(executor.submit(analyzer.analyze(batch)));
+                                batch = new ArrayList<>(BATCH_SIZE);
+                            }
+                            prefetch = blobPrefetcher.prefetch(objectId, size);
+                        }
+                        batch.add(new ChangedPath(objectId, pathString, prefetch));
+                    }
+                    if (batch.size() == BATCH_SIZE) {
+                        futures.add(executor.submit(analyzer.analyze(batch)));
+                        batch = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    futures.add(executor.submit(analyzer.analyze(batch)));
+                    batch = Collections.emptyList();
+                }
+            } catch (final Exception e) {
+                for (final ChangedPath changedPath : batch) {
+                    if (changedPath.prefetch != null) {
+                        changedPath.prefetch.discard();
+                    }
+                }
+                try {
+                    awaitAll(futures);
+                } catch (final Exception suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            awaitAll(futures);
 
-            final int threadCount = Runtime.getRuntime().availableProcessors() - 1;
-            final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
-            for (int i = 0; i < threadCount; i++) {
-                executor.submit(new CommitAnalyzer(curCommitId, assignment, syncedfileNodeSet, treeWalk));
+            if (changesOnly) {
+                return;
             }
-            executor.shutdown();
-            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
 
             final Literal negCommitLiteral = new Literal(curCommitId, false);
 
-            for (final TextFileNode fileNode : fileMap.getTextFileMap().values()) {
-                if (!fileNodeSet.contains(fileNode.getPath()) && fileNode.isActive(assignment, conditionDictionary)) {
-                    deleteTextNode(assignment, negCommitLiteral, fileNode);
+            for (final TextFileNode fileNode : fileMap.getTextFileNodes()) {
+                if (!fileNodeSet.contains(fileNode.getPath())) {
+                    final ReentrantLock lock = lockPath(fileNode.getPath());
+                    try {
+                        if (fileNode.isActive(assignment, conditionDictionary)) {
+                            deleteTextNode(commitId, negCommitLiteral, fileNode);
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
                 }
             }
-            for (final BinaryFileNode fileNode : fileMap.getBinaryFileMap().values()) {
-                if (!fileNodeSet.contains(fileNode.getPath()) && fileNode.isActive(assignment, conditionDictionary)) {
-                    deleteBinaryNode(assignment, negCommitLiteral, fileNode);
+            for (final BinaryFileNode fileNode : fileMap.getBinaryFileNodes()) {
+                if (!fileNodeSet.contains(fileNode.getPath())) {
+                    final ReentrantLock lock = lockPath(fileNode.getPath());
+                    try {
+                        if (fileNode.isActive(assignment, conditionDictionary)) {
+                            deleteBinaryNode(commitId, negCommitLiteral, fileNode);
+                        }
+                    } finally {
+                        lock.unlock();
+                    }
                 }
             }
         }
     }
 
-    private void deleteBinaryNode(
-            Map<Object, Boolean> assignment, final Node negCommitLiteral, BinaryFileNode binaryNode) {
-        final Node condition = new And(conditionDictionary.getCondition(binaryNode.getCondition()), negCommitLiteral);
-        final int conditionIndex = conditionDictionary.getIndexSynced(condition);
-        binaryNode.setCondition(conditionIndex);
+    private static void awaitAll(List<Future<?>> futures) throws InterruptedException, ExecutionException {
+        ExecutionException failure = null;
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (final ExecutionException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e.getCause());
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
     }
 
-    private void deleteTextNode(Map<Object, Boolean> assignment, final Node negCommitLiteral, TextFileNode textNode) {
-        final Node condition = new And(conditionDictionary.getCondition(textNode.getCondition()), negCommitLiteral);
-        final int conditionIndex = conditionDictionary.getIndexSynced(condition);
-        textNode.setCondition(conditionIndex);
+    private void deleteBinaryNode(int commitId, final Node negCommitLiteral, BinaryFileNode binaryNode) {
+        binaryNode.setCondition(conditionDictionary.getConjunctionIndex(binaryNode.getCondition(), negCommitLiteral));
+        binaryNode.addModifyingCommit(commitId);
     }
 
-    private class CommitAnalyzer implements Callable<Void> {
+    private void deleteTextNode(int commitId, final Node negCommitLiteral, TextFileNode textNode) {
+        textNode.setCondition(conditionDictionary.getConjunctionIndex(textNode.getCondition(), negCommitLiteral));
+        textNode.addModifyingCommit(commitId);
+    }
 
-        private final Map<Object, Boolean> assignment;
+    private static class ChangedPath {
+
+        private final ObjectId objectId;
+        private final String pathString;
+        private final Prefetch prefetch;
+
+        public ChangedPath(ObjectId objectId, String pathString, Prefetch prefetch) {
+            this.objectId = objectId;
+            this.pathString = pathString;
+            this.prefetch = prefetch;
+        }
+    }
+
+    private class CommitAnalyzer {
+
+        private final VariableAssignment assignment;
         private final Node commitLiteral;
         private final Node negCommitLiteral;
         private final int commitLiteralIndex;
-        private final TreeWalk treeWalk;
+        private final int commitId;
         private final Set<String> fileNodeSet;
+        private final RoaringBitmap mergedAncestors;
 
         public CommitAnalyzer(
-                String curCommitId, Map<Object, Boolean> assignment, Set<String> fileNodeSet, TreeWalk treeWalk) {
+                String curCommitId,
+                int commitId,
+                VariableAssignment assignment,
+                Set<String> fileNodeSet,
+                RoaringBitmap mergedAncestors) {
+            this.commitId = commitId;
             this.assignment = assignment;
-            this.treeWalk = treeWalk;
             this.fileNodeSet = fileNodeSet;
+            this.mergedAncestors = mergedAncestors;
 
             final Literal tempCommitLiteral = new Literal(curCommitId, true);
             final Literal tempNegCommitLiteral = new Literal(curCommitId, false);
@@ -196,26 +459,51 @@ public class LineExtractor implements TreeVisitor<Void, CommitNode>, Consumer<Co
             negCommitLiteral = conditionDictionary.getCondition(tempNegCommitLiteral);
         }
 
-        @Override
-        public Void call() throws Exception {
-            while (true) {
-                byte[] newBytes;
-                final String pathString;
-                synchronized (treeWalk) {
-                    if (treeWalk.next()) {
-                        newBytes = gitUtils.getBytes(treeWalk.getObjectId(0));
-                        pathString = treeWalk.getPathString();
-                    } else {
-                        break;
+        public Callable<Void> analyze(List<ChangedPath> batch) {
+            return () -> {
+                try {
+                    for (final ChangedPath changedPath : batch) {
+                        if (changedPath.prefetch == null) {
+                            final ReentrantLock lock = lockPath(changedPath.pathString);
+                            try {
+                                if (isCarriedOver(changedPath.pathString)) {
+                                    fileNodeSet.add(changedPath.pathString);
+                                    continue;
+                                }
+                            } finally {
+                                lock.unlock();
+                            }
+                        }
+                        final byte[] newBytes = (changedPath.prefetch != null)
+                                ? changedPath.prefetch.get()
+                                : gitUtils.getBytes(changedPath.objectId);
+                        final ReentrantLock lock = lockPath(changedPath.pathString);
+                        try {
+                            analyze(changedPath.objectId, newBytes, changedPath.pathString);
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                    return null;
+                } finally {
+                    for (final ChangedPath changedPath : batch) {
+                        if (changedPath.prefetch != null) {
+                            changedPath.prefetch.discard();
+                        }
                     }
                 }
+            };
+        }
 
-                analyze(newBytes, pathString);
-            }
-            return null;
+        private boolean isCarriedOver(String pathString) {
+            final TextFileNode textNode = fileMap.getTextFileNode(pathString);
+            final BinaryFileNode binaryNode = fileMap.getBinaryFileNode(pathString);
+            return ((textNode != null) || (binaryNode != null))
+                    && ((textNode == null) || !textNode.isModifiedByAny(mergedAncestors))
+                    && ((binaryNode == null) || !binaryNode.isModifiedByAny(mergedAncestors));
         }
 
-        private void analyze(byte[] newBytes, final String pathString) throws IOException {
+        private void analyze(ObjectId objectId, byte[] newBytes, final String pathString) throws IOException {
             TextFileNode textNode = fileMap.getTextFileNode(pathString);
             BinaryFileNode binaryNode = fileMap.getBinaryFileNode(pathString);
 
@@ -225,45 +513,49 @@ public class LineExtractor implements TreeVisitor<Void, CommitNode>, Consumer<Co
             fileNodeSet.add(pathString);
             if (newBytes == null) {
                 if ((textNode != null) && textNode.isActive(assignment, conditionDictionary)) {
-                    deleteTextNode(assignment, negCommitLiteral, textNode);
+                    deleteTextNode(commitId, negCommitLiteral, textNode);
                 } else if ((binaryNode != null) && binaryNode.isActive(assignment, conditionDictionary)) {
-                    deleteBinaryNode(assignment, negCommitLiteral, binaryNode);
+                    deleteBinaryNode(commitId, negCommitLiteral, binaryNode);
                 }
             } else {
                 if (gitUtils.isBinary(newBytes)) {
                     if ((textNode != null) && textNode.isActive(assignment, conditionDictionary)) {
-                        deleteTextNode(assignment, negCommitLiteral, textNode);
+                        deleteTextNode(commitId, negCommitLiteral, textNode);
                     }
                     if (binaryNode == null) {
                         binaryNode = new BinaryFileNode(pathString);
                         binaryNode.setCondition(commitLiteralIndex);
+                        binaryNode.addModifyingCommit(commitId);
                         fileMap.addBinaryNode(binaryNode);
-                        binaryNode.getDataNodes().add(new DataNode<>(newBytes, commitLiteralIndex));
+                        binaryNode
+                                .getDataNodes()
+                                .add(new BlobNode(blobStore, blobStore.add(objectId), commitLiteralIndex));
                     } else if (!binaryNode.isActive(assignment, conditionDictionary)) {
-                        final Or condition =
-                                new Or(conditionDictionary.getCondition(binaryNode.getCondition()), commitLiteral);
-                        final int conditionIndex = conditionDictionary.getIndexSynced(condition);
-                        binaryNode.setCondition(conditionIndex);
-                        replaceBinaryData(newBytes, binaryNode);
+                        binaryNode.setCondition(
+                                conditionDictionary.getDisjunctionIndex(binaryNode.getCondition(), commitLiteral));
+                        binaryNode.addModifyingCommit(commitId);
+                        replaceBinaryData(objectId, binaryNode);
                     } else {
-                        replaceBinaryData(newBytes, binaryNode);
+                        replaceBinaryData(objectId, binaryNode);
                     }
                 } else {
                     if ((binaryNode != null) && binaryNode.isActive(assignment, conditionDictionary)) {
-                        deleteBinaryNode(assignment, negCommitLiteral, binaryNode);
+                        deleteBinaryNode(commitId, negCommitLiteral, binaryNode);
                     }
                     if (textNode == null) {
                         textNode = new TextFileNode(pathString);
                         textNode.setCondition(commitLiteralIndex);
+                        textNode.addModifyingCommit(commitId);
                         fileMap.addTextNode(textNode);
-                        for (final String line : gitUtils.getLines(newBytes)) {
-                            textNode.getDataNodes().add(new LineNode(line, commitLiteralIndex));
+                        final LineSequence newText = new LineSequence(newBytes);
+                        final List<LineNode> lineNodes = textNode.getDataNodes();
+                        for (int line = 0; line < newText.size(); line++) {
+                            lineNodes.add(new LineNode(linePool.intern(newText.getLine(line)), commitLiteralIndex));
                         }
                     } else if (!textNode.isActive(assignment, conditionDictionary)) {
-                        final Or condition =
-                                new Or(conditionDictionary.getCondition(textNode.getCondition()), commitLiteral);
-                        final int conditionIndex = conditionDictionary.getIndexSynced(condition);
-                        textNode.setCondition(conditionIndex);
+                        textNode.setCondition(
+                                conditionDictionary.getDisjunctionIndex(textNode.getCondition(), commitLiteral));
+                        textNode.addModifyingCommit(commitId);
                         replaceTextData(newBytes, textNode);
                     } else {
                         replaceTextData(newBytes, textNode);
@@ -273,132 +565,87 @@ public class LineExtractor implements TreeVisitor<Void, CommitNode>, Consumer<Co
         }
 
         private void replaceTextData(final byte[] newBytes, TextFileNode textNode) throws IOException {
-            final List<String> newLines = gitUtils.getLines(newBytes);
-            final List<String> oldLines = textNode.getActiveData(assignment, conditionDictionary)
-                    .map(DataNode::getData)
-                    .collect(Collectors.toList());
+            final LineSequence newText = new LineSequence(newBytes);
+            final int lineCount = textNode.getLineCount();
+            final IntArrayList activeRows = new IntArrayList();
+            final List<String> oldLines = new ArrayList<>();
+            for (int row = 0; row < lineCount; row++) {
+                if (conditionDictionary.evaluate(textNode.getLineCondition(row), assignment)) {
+                    activeRows.add(row);
+                    oldLines.add(textNode.getLine(row));
+                }
+            }
 
-            final RawText newText = new RawText(getBytesFromLines(newLines));
-            final RawText oldText = new RawText(getBytesFromLines(oldLines));
+            final LineSequence oldText = new LineSequence(oldLines);
 
-            final EditList editList = algorithm.diff(RawTextComparator.DEFAULT, oldText, newText);
+            final EditList editList = algorithm.diff(LineSequence.COMPARATOR, oldText, newText);
             if (!editList.isEmpty()) {
-                Collections.sort(editList, this::compareEditsA);
-
-                final TreeSet<Integer> linesToDelete = new TreeSet<>();
-                for (final Edit edit : editList) {
-                    final Type type = edit.getType();
-                    switch (type) {
-                        case REPLACE:
-                        case DELETE:
-                            final int beginA = edit.getBeginA();
-                            final int endA = edit.getEndA();
-                            for (int i = beginA; i < endA; i++) {
-                                linesToDelete.add(i);
-                            }
-                            break;
-                        case EMPTY:
-                        case INSERT:
-                            break;
-                        default:
-                            throw new IllegalStateException(String.valueOf(type));
-                    }
-                }
-                ListIterator<LineNode> lineIterator = textNode.getDataNodes().listIterator();
+                textNode.addModifyingCommit(commitId);
+                Collections.sort(editList, this::compareEditsB);
+
+                final int[] insertRows = new int[editList.size()];
                 int lineNumber = 0;
+                int anchorRow = 0;
                 int cachedOldCondition = -1;
                 int cachedNegatedCondition = -1;
-                deleteLoop:
-                for (final Integer lineNumberToDelete : linesToDelete) {
-                    while (lineIterator.hasNext()) {
-                        final DataNode<String> lineNode = lineIterator.next();
-                        if (lineNode.isActive(assignment, conditionDictionary)
-                                && (lineNumber++ == lineNumberToDelete)) {
-                            final int oldCondition = lineNode.getCondition();
-                            if (oldCondition != cachedOldCondition) {
-                                cachedOldCondition = oldCondition;
-                                final And condition =
-                                        new And(conditionDictionary.getCondition(oldCondition), negCommitLiteral);
-                                cachedNegatedCondition = conditionDictionary.getIndexSynced(condition);
-                            }
-                            lineNode.setCondition(cachedNegatedCondition);
-                            continue deleteLoop;
+                for (int i = 0; i < editList.size(); i++) {
+                    final Edit edit = editList.get(i);
+                    final int beginA = edit.getBeginA();
+                    final int endA = edit.getEndA();
+                    if (beginA > lineNumber) {
+                        anchorRow = activeRows.getInt(beginA - 1) + 1;
+                    }
+                    insertRows[i] = anchorRow;
+                    for (int line = beginA; line < endA; line++) {
+                        final int row = activeRows.getInt(line);
+                        final int oldCondition = textNode.getLineCondition(row);
+                        if (oldCondition != cachedOldCondition) {
+                            cachedOldCondition = oldCondition;
+                            cachedNegatedCondition =
+                                    conditionDictionary.getConjunctionIndex(oldCondition, negCommitLiteral);
                         }
+                        textNode.setLineCondition(row, cachedNegatedCondition);
                     }
+                    lineNumber = endA;
                 }
 
-                lineIterator = textNode.getDataNodes().listIterator();
-                lineNumber = 1;
-                Collections.sort(editList, this::compareEditsB);
-
-                for (final Edit edit : editList) {
-                    final Type type = edit.getType();
-                    switch (type) {
-                        case DELETE:
-                        case EMPTY:
-                            break;
-                        case INSERT:
-                        case REPLACE:
-                            final int beginB = edit.getBeginB();
-                            final int endB = edit.getEndB();
-                            final List<String> newEditedLines = newLines.subList(beginB, endB);
-                            if (beginB == 0) {
-                                lineIterator = textNode.getDataNodes().listIterator();
-                                addLines(newEditedLines, lineIterator);
-                            } else {
-                                lineIterator = textNode.getDataNodes().listIterator();
-                                lineNumber = 1;
-                                while (lineIterator.hasNext()) {
-                                    if (lineIterator.next().isActive(assignment, conditionDictionary)
-                                            && (lineNumber++ == beginB)) {
-                                        addLines(newEditedLines, lineIterator);
-                                        break;
-                                    }
-                                }
-                            }
-                            break;
-                        default:
-                            throw new IllegalStateException(String.valueOf(type));
+                final List<LineNode> lineNodes = textNode.getDataNodes();
+                int insertedLines = 0;
+                for (int i = 0; i < editList.size(); i++) {
+                    final Edit edit = editList.get(i);
+                    final int beginB = edit.getBeginB();
+                    final int endB = edit.getEndB();
+                    if (endB > beginB) {
+                        addLines(newText, beginB, endB, lineNodes.listIterator(insertRows[i] + insertedLines));
+                        insertedLines += endB - beginB;
                     }
                 }
             }
         }
 
-        private void replaceBinaryData(final byte[] newBytes, BinaryFileNode binaryNode) {
-            final Optional<DataNode<byte[]>> binaryData =
-                    binaryNode.getActiveData(assignment, conditionDictionary).findAny();
-            if (binaryData.isPresent() && !Objects.equals(binaryData.get().getData(), newBytes)) {
-                binaryNode.getActiveData(assignment, conditionDictionary).forEach(dataNode -> {
-                    final And condition =
-                            new And(conditionDictionary.getCondition(dataNode.getCondition()), negCommitLiteral);
-                    final int conditionIndex = conditionDictionary.getIndexSynced(condition);
-                    dataNode.setCondition(conditionIndex);
-                });
-                binaryNode.getDataNodes().add(new DataNode<>(newBytes, commitLiteralIndex));
+        private void replaceBinaryData(final ObjectId objectId, BinaryFileNode binaryNode) {
+            final List<BlobNode> binaryData = binaryNode
+                    .getActiveData(assignment, conditionDictionary)
+                    .collect(Collectors.toList());
+            if (binaryData.isEmpty()
+                    || ((binaryData.size() == 1) && Objects.equals(binaryData.get(0).getObjectId(), objectId))) {
+                return;
             }
-        }
-
-        private byte[] getBytesFromLines(List<String> newLines) {
-            final StringBuilder sb = new StringBuilder();
-            for (final String line : newLines) {
-                sb.append(line);
-                sb.append('\n');
+            binaryNode.addModifyingCommit(commitId);
+            for (final BlobNode dataNode : binaryData) {
+                dataNode.setCondition(
+                        conditionDictionary.getConjunctionIndex(dataNode.getCondition(), negCommitLiteral));
             }
-            final byte[] bytes = sb.toString().getBytes();
-            return bytes;
-        }
-
-        private int compareEditsA(Edit edit1, Edit edit2) {
-            return edit2.getBeginA() - edit1.getBeginA();
+            binaryNode.getDataNodes().add(new BlobNode(blobStore, blobStore.add(objectId), commitLiteralIndex));
         }
 
         private int compareEditsB(Edit edit1, Edit edit2) {
             return edit1.getBeginB() - edit2.getBeginB();
         }
 
-        private void addLines(List<String> newEditedLines, ListIterator<LineNode> iterator) {
-            for (final String line : newEditedLines) {
-                iterator.add(new LineNode(line, commitLiteralIndex));
+        private void addLines(LineSequence newText, int begin, int end, ListIterator<LineNode> iterator) {
+            for (int line = begin; line < end; line++) {
+                iterator.add(new LineNode(linePool.intern(newText.getLine(line)), commitLiteralIndex));
             }
         }
     }
@@ -24,15 +24,14 @@ import de.featjar.util.logging.Logger;
 import de.featjar.util.tree.visitor.TreeVisitor;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Set;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
-import org.prop4j.Literal;
 import org.prop4j.Node;
+import org.spldev.varcs.AssignmentBatch;
+import org.spldev.varcs.CommitReachability;
 import org.spldev.varcs.FileMap;
+import org.spldev.varcs.NodeDictionary;
+import org.spldev.varcs.VariableAssignment;
 import org.spldev.varcs.git.GitUtils;
 import org.spldev.varcs.structure.BinaryFileNode;
 import org.spldev.varcs.structure.CommitNode;
@@ -48,26 +47,32 @@ public class StatisticVisitor
     private final GitUtils gitUtils;
 
     private FileMap fileMap;
+    private final NodeDictionary conditionDictionary;
 
-    private final Set<Literal> literals;
-
-    private final HashMap<CommitNode, Map<Object, Boolean>> visitedNodes = new HashMap<>();
+    private final CommitAssignments visitedNodes;
     private final HashMap<CommitNode, Statistic> map = new HashMap<>();
 
-    public StatisticVisitor(GitUtils gitUtils, FileMap fileMap, Node formula) {
+    private final AssignmentBatch batch = new AssignmentBatch();
+    private final CommitNode[] batchCommits = new CommitNode[AssignmentBatch.CAPACITY];
+
+    public StatisticVisitor(GitUtils gitUtils, FileMap fileMap, Node formula, CommitReachability reachability) {
         this.gitUtils = gitUtils;
         this.fileMap = fileMap;
-        literals = formula.getUniqueLiterals();
+        conditionDictionary = fileMap.getConditionDictionary();
+        conditionDictionary.putVariables(formula);
+        visitedNodes = new CommitAssignments(conditionDictionary, reachability);
     }
 
     @Override
     public Optional<HashMap<CommitNode, Statistic>> getResult() {
+        flush();
         return Optional.of(map);
     }
 
     @Override
     public void reset() {
         map.clear();
+        batch.clear();
     }
 
     @Override
@@ -81,46 +86,60 @@ public class StatisticVisitor
     }
 
     public VisitorResult extract(CommitNode currentCommit) {
-        for (final CommitNode parent : currentCommit.getParents()) {
-            if (visitedNodes.get(parent) == null) {
-                return VisitorResult.SkipChildren;
-            }
+        // A merge is reached once per parent and is inspected on the first visit after all of its parents.
+        if (visitedNodes.contains(currentCommit) || !visitedNodes.hasAllParents(currentCommit)) {
+            return VisitorResult.SkipChildren;
         }
 
-        final Map<Object, Boolean> assignment = new HashMap<>();
-        for (final Literal literal : literals) {
-            assignment.put(literal.var, Boolean.FALSE);
-        }
-        for (final CommitNode parent : currentCommit.getParents()) {
-            final Map<Object, Boolean> parentAssignment = visitedNodes.get(parent);
-            for (final Entry<Object, Boolean> entry : parentAssignment.entrySet()) {
-                if (entry.getValue()) {
-                    assignment.put(entry.getKey(), entry.getValue());
-                }
-            }
-        }
         final String curCommitId = gitUtils.getVariable(currentCommit).orElseThrow(NullPointerException::new);
-        assignment.put(curCommitId, Boolean.TRUE);
         Logger.logProgress("Inspect " + visitedNodes.size() + ": " + curCommitId);
-        visitedNodes.put(currentCommit, assignment);
+        final VariableAssignment assignment = visitedNodes.create(currentCommit, curCommitId);
         test(currentCommit, assignment);
+        visitedNodes.release(currentCommit);
         return VisitorResult.Continue;
     }
 
-    private void test(CommitNode curCommit, Map<Object, Boolean> assignment) {
-        final Statistic statistic = new Statistic();
-        map.put(curCommit, statistic);
+    private void test(CommitNode curCommit, VariableAssignment assignment) {
+        batchCommits[batch.size()] = curCommit;
+        if (batch.add(assignment)) {
+            flush();
+        }
+    }
 
-        final List<BinaryFileNode> binaryFiles = fileMap.getActiveBinaryFileNodes(assignment);
-        final List<TextFileNode> textFiles = fileMap.getActiveTextFileNodes(assignment);
-        statistic.activeTextFiles = textFiles.size();
-        statistic.activeBinaryFiles = binaryFiles.size();
+    public void flush() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        final Statistic[] statistics = new Statistic[batch.size()];
+        for (int lane = 0; lane < statistics.length; lane++) {
+            statistics[lane] = new Statistic();
+            map.put(batchCommits[lane], statistics[lane]);
+            batchCommits[lane] = null;
+        }
 
-        for (final TextFileNode textFileNode : textFiles) {
-            statistic.loc += textFileNode
-                    .getActiveData(assignment, fileMap.getConditionDictionary())
-                    .collect(Collectors.toList())
-                    .size();
+        for (final BinaryFileNode binaryFileNode : fileMap.getBinaryFileMap().values()) {
+            final long active = conditionDictionary.evaluate(binaryFileNode.getCondition(), batch);
+            for (long lanes = active; lanes != 0; lanes &= lanes - 1) {
+                statistics[Long.numberOfTrailingZeros(lanes)].activeBinaryFiles++;
+            }
+        }
+        for (final TextFileNode textFileNode : fileMap.getTextFileMap().values()) {
+            final long active = conditionDictionary.evaluate(textFileNode.getCondition(), batch);
+            if (active == 0) {
+                continue;
+            }
+            for (long lanes = active; lanes != 0; lanes &= lanes - 1) {
+                statistics[Long.numberOfTrailingZeros(lanes)].activeTextFiles++;
+            }
+            final int lineCount = textFileNode.getLineCount();
+            for (int i = 0; i < lineCount; i++) {
+                final long activeLine =
+                        active & conditionDictionary.evaluate(textFileNode.getLineCondition(i), batch);
+                for (long lanes = activeLine; lanes != 0; lanes &= lanes - 1) {
+                    statistics[Long.numberOfTrailingZeros(lanes)].loc++;
+                }
+            }
         }
+        batch.clear();
     }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import org.spldev.varcs.VariableAssignment;
+
+// A free-standing assignment of variable indexes, for evaluating conditions outside of a commit graph.
+public class BitSetAssignment implements VariableAssignment {
+
+    private final BitSet variables = new BitSet();
+    private byte[] truthValues = new byte[0];
+
+    public void set(int variableIndex) {
+        variables.set(variableIndex);
+        clearTruthValues();
+    }
+
+    @Override
+    public boolean get(int variableIndex) {
+        return variables.get(variableIndex);
+    }
+
+    @Override
+    public byte getTruthValue(int conditionIndex) {
+        return conditionIndex < truthValues.length ? truthValues[conditionIndex] : UNKNOWN;
+    }
+
+    @Override
+    public void setTruthValue(int conditionIndex, boolean value) {
+        if (conditionIndex >= truthValues.length) {
+            truthValues = Arrays.copyOf(truthValues, Math.max(conditionIndex + 1, 2 * truthValues.length));
+        }
+        truthValues[conditionIndex] = value ? TRUE : FALSE;
+    }
+
+    @Override
+    public boolean resetTruthValue(int conditionIndex) {
+        if ((conditionIndex < truthValues.length) && (truthValues[conditionIndex] != UNKNOWN)) {
+            truthValues[conditionIndex] = UNKNOWN;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void clearTruthValues() {
+        truthValues = new byte[0];
+    }
+}
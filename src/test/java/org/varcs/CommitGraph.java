@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.spldev.varcs.git.GitUtils;
+import org.spldev.varcs.structure.CommitNode;
+
+// Builds commit DAGs with synthetic ids on top of an empty repository, which GitUtils needs to name commit variables.
+public class CommitGraph implements Closeable {
+
+    private final Path directory;
+    private final Git git;
+    private final GitUtils gitUtils;
+    private final ArrayList<CommitNode> commits = new ArrayList<>();
+
+    public CommitGraph() throws IOException, GitAPIException {
+        directory = Files.createTempDirectory("varcs-test");
+        git = Git.init().setDirectory(directory.toFile()).call();
+        gitUtils = new GitUtils(git);
+    }
+
+    // The first seven hex digits differ for every commit, so the abbreviated variables are unique.
+    public CommitNode add(int... parentIndexes) {
+        final CommitNode commit =
+                new CommitNode(ObjectId.fromString(String.format("%07x%033x", commits.size() + 1, 0)));
+        for (final int parentIndex : parentIndexes) {
+            final CommitNode parent = commits.get(parentIndex);
+            commit.addParent(parent);
+            parent.addChild(commit);
+        }
+        commits.add(commit);
+        return commit;
+    }
+
+    // Adds a root if the graph is empty, then commits with one or two random earlier parents.
+    public void addRandom(Random random, int count, double mergeProbability) {
+        if (commits.isEmpty()) {
+            add();
+            count--;
+        }
+        for (int i = 0; i < count; i++) {
+            final int firstParent = random.nextInt(commits.size());
+            final int secondParent = random.nextInt(commits.size());
+            if ((firstParent != secondParent) && (random.nextDouble() < mergeProbability)) {
+                add(firstParent, secondParent);
+            } else {
+                add(firstParent);
+            }
+        }
+    }
+
+    public CommitNode get(int index) {
+        return commits.get(index);
+    }
+
+    public List<CommitNode> getCommits() {
+        return commits;
+    }
+
+    public CommitNode getRoot() {
+        return commits.get(0);
+    }
+
+    public GitUtils getGitUtils() {
+        return gitUtils;
+    }
+
+    public Git getGit() {
+        return git;
+    }
+
+    public String getVariable(int index) {
+        return gitUtils.getVariable(commits.get(index)).orElseThrow(NullPointerException::new);
+    }
+
+    // Indexes of all commits that are ancestors of the given commit, including the commit itself.
+    public BitSet getAncestors(int index) {
+        final BitSet ancestors = new BitSet();
+        final ArrayList<CommitNode> stack = new ArrayList<>();
+        stack.add(commits.get(index));
+        while (!stack.isEmpty()) {
+            final CommitNode commit = stack.remove(stack.size() - 1);
+            final int commitIndex = commits.indexOf(commit);
+            if (!ancestors.get(commitIndex)) {
+                ancestors.set(commitIndex);
+                stack.addAll(commit.getParents());
+            }
+        }
+        return ancestors;
+    }
+
+    @Override
+    public void close() throws IOException {
+        git.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (final Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import org.junit.Test;
+import org.spldev.varcs.ChunkedArray;
+
+public class TestChunkedArray {
+
+    @Test
+    public void testGetAndSet() {
+        final ChunkedArray<String> array = new ChunkedArray<>();
+        assertNull(array.get(0));
+        assertNull(array.get(1_000_000));
+        final int[] indexes = {0, 1, 4095, 4096, 10_000, 100_000};
+        for (final int index : indexes) {
+            array.set(index, String.valueOf(index));
+        }
+        for (final int index : indexes) {
+            assertEquals(String.valueOf(index), array.get(index));
+        }
+        assertNull(array.get(2));
+        assertNull(array.get(99_999));
+
+        array.clear();
+        for (final int index : indexes) {
+            assertNull(array.get(index));
+        }
+    }
+
+    @Test
+    public void testCompareAndSet() {
+        final ChunkedArray<String> array = new ChunkedArray<>();
+        assertTrue(array.compareAndSet(5000, null, "a"));
+        assertFalse(array.compareAndSet(5000, null, "b"));
+        assertEquals("a", array.get(5000));
+        assertTrue(array.compareAndSet(5000, "a", "b"));
+        assertEquals("b", array.get(5000));
+    }
+
+    @Test
+    public void testAsList() {
+        final ChunkedArray<Integer> array = new ChunkedArray<>();
+        final int[] size = {0};
+        final List<Integer> list = array.asList(() -> size[0]);
+        for (int i = 0; i < 10_000; i++) {
+            array.set(i, i);
+            size[0]++;
+        }
+        assertEquals(10_000, list.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(i, (int) list.get(i));
+        }
+    }
+
+    @Test
+    public void testConcurrentWriters() throws InterruptedException {
+        final ChunkedArray<Integer> array = new ChunkedArray<>();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = offset; i < 50_000; i += threads.length) {
+                    array.set(i, i);
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < 50_000; i++) {
+            assertEquals(i, (int) array.get(i));
+        }
+    }
+}
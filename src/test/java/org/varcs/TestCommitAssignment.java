@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Test;
+import org.prop4j.And;
+import org.prop4j.Literal;
+import org.prop4j.Or;
+import org.spldev.varcs.CommitAssignment;
+import org.spldev.varcs.CommitReachability;
+import org.spldev.varcs.NodeDictionary;
+import org.spldev.varcs.VariableAssignment;
+
+public class TestCommitAssignment {
+
+    @Test
+    public void testTruthValues() throws IOException, GitAPIException {
+        try (CommitGraph graph = new CommitGraph()) {
+            graph.add();
+            final CommitReachability reachability = new CommitReachability(graph.getRoot(), graph.getGitUtils());
+            final CommitAssignment assignment = new CommitAssignment(reachability, new int[0], 0);
+            final int[] conditions = {0, 1, 4095, 4096, 100_000};
+            for (final int condition : conditions) {
+                assertEquals(VariableAssignment.UNKNOWN, assignment.getTruthValue(condition));
+                assignment.setTruthValue(condition, (condition & 1) == 0);
+            }
+            for (final int condition : conditions) {
+                assertEquals(
+                        (condition & 1) == 0 ? VariableAssignment.TRUE : VariableAssignment.FALSE,
+                        assignment.getTruthValue(condition));
+            }
+            assertEquals(VariableAssignment.UNKNOWN, assignment.getTruthValue(2));
+
+            assertTrue(assignment.resetTruthValue(4096));
+            assertFalse(assignment.resetTruthValue(4096));
+            assertFalse(assignment.resetTruthValue(50_000));
+            assertFalse(assignment.resetTruthValue(1_000_000));
+            assertEquals(VariableAssignment.UNKNOWN, assignment.getTruthValue(4096));
+            assertEquals(VariableAssignment.TRUE, assignment.getTruthValue(100_000));
+
+            assignment.clearTruthValues();
+            for (final int condition : conditions) {
+                assertEquals(VariableAssignment.UNKNOWN, assignment.getTruthValue(condition));
+            }
+        }
+    }
+
+    @Test
+    public void testInheritedTruthValues() throws IOException, GitAPIException {
+        try (CommitGraph graph = new CommitGraph()) {
+            graph.add();
+            graph.add(0);
+            graph.add(0);
+            final CommitReachability reachability = new CommitReachability(graph.getRoot(), graph.getGitUtils());
+            final CommitAssignment parent = new CommitAssignment(reachability, new int[0], 0);
+            parent.setTruthValue(3, true);
+            parent.setTruthValue(5000, false);
+
+            final CommitAssignment copy = new CommitAssignment(reachability, new int[0], 1, parent, false);
+            assertEquals(VariableAssignment.TRUE, copy.getTruthValue(3));
+            assertEquals(VariableAssignment.FALSE, copy.getTruthValue(5000));
+            copy.setTruthValue(3, false);
+            assertEquals(VariableAssignment.TRUE, parent.getTruthValue(3));
+
+            final CommitAssignment move = new CommitAssignment(reachability, new int[0], 2, parent, true);
+            assertEquals(VariableAssignment.TRUE, move.getTruthValue(3));
+            assertEquals(VariableAssignment.FALSE, move.getTruthValue(5000));
+            assertEquals(VariableAssignment.UNKNOWN, parent.getTruthValue(3));
+        }
+    }
+
+    @Test
+    public void testResetDependentTruthValues() {
+        try (NodeDictionary nodeDictionary = new NodeDictionary()) {
+            final int disjunction = nodeDictionary.getIndex(new Or(new Literal("a"), new Literal("b")));
+            final int conjunction =
+                    nodeDictionary.getIndex(new And(new Or(new Literal("a"), new Literal("b")), new Literal("c")));
+            final int other = nodeDictionary.getIndex(new Literal("c"));
+            final BitSetAssignment assignment = new BitSetAssignment();
+            assignment.setTruthValue(disjunction, false);
+            assignment.setTruthValue(conjunction, false);
+            assignment.setTruthValue(other, true);
+
+            // The conjunction refers to the disjunction, so it depends on a without naming it.
+            nodeDictionary.resetTruthValues(assignment, nodeDictionary.getVariableIndex("a"));
+            assertEquals(VariableAssignment.UNKNOWN, assignment.getTruthValue(disjunction));
+            assertEquals(VariableAssignment.UNKNOWN, assignment.getTruthValue(conjunction));
+            assertEquals(VariableAssignment.TRUE, assignment.getTruthValue(other));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.Test;
+import org.roaringbitmap.RoaringBitmap;
+import org.spldev.varcs.CommitReachability;
+import org.spldev.varcs.structure.CommitNode;
+
+public class TestCommitReachability {
+
+    @Test
+    public void testLinearHistory() throws IOException, GitAPIException {
+        try (CommitGraph graph = new CommitGraph()) {
+            graph.add();
+            for (int i = 1; i < 10; i++) {
+                graph.add(i - 1);
+            }
+            final CommitReachability reachability = new CommitReachability(graph.getRoot(), graph.getGitUtils());
+            assertEquals(10, reachability.getCommitCount());
+            assertReachability(graph, reachability);
+        }
+    }
+
+    @Test
+    public void testBranchesAndMerges() throws IOException, GitAPIException {
+        try (CommitGraph graph = new CommitGraph()) {
+            graph.add();
+            graph.add(0);
+            graph.add(0);
+            graph.add(1);
+            graph.add(3, 2);
+            graph.add(2);
+            graph.add(4, 5);
+            final CommitReachability reachability = new CommitReachability(graph.getRoot(), graph.getGitUtils());
+            assertReachability(graph, reachability);
+
+            for (int i = 0; i < graph.getCommits().size(); i++) {
+                final CommitNode commit = graph.get(i);
+                assertTrue(reachability.getCommitId(commit) >= 0);
+                assertEquals(reachability.getCommitId(commit), reachability.getCommitId(graph.getVariable(i)));
+            }
+            assertEquals(-1, reachability.getCommitId("unknown"));
+
+            final RoaringBitmap mergedAncestors = reachability.getMergedAncestors(graph.get(4));
+            assertEquals(1, mergedAncestors.getCardinality());
+            assertTrue(mergedAncestors.contains(reachability.getCommitId(graph.get(2))));
+            assertTrue(reachability.getMergedAncestors(graph.get(3)).isEmpty());
+            assertTrue(reachability.getMergedAncestors(graph.getRoot()).isEmpty());
+        }
+    }
+
+    @Test
+    public void testRandomHistories() throws IOException, GitAPIException {
+        for (int seed = 0; seed < 5; seed++) {
+            try (CommitGraph graph = new CommitGraph()) {
+                graph.addRandom(new Random(seed), 150, 0.2);
+                final CommitReachability reachability =
+                        new CommitReachability(graph.getRoot(), graph.getGitUtils());
+                assertEquals(150, reachability.getCommitCount());
+                assertReachability(graph, reachability);
+            }
+        }
+    }
+
+    private static void assertReachability(CommitGraph graph, CommitReachability reachability) {
+        final int commitCount = graph.getCommits().size();
+        for (int i = 0; i < commitCount; i++) {
+            final BitSet ancestors = graph.getAncestors(i);
+            for (int j = 0; j < commitCount; j++) {
+                assertEquals(
+                        ancestors.get(j),
+                        reachability.isAncestor(
+                                reachability.getCommitId(graph.get(j)), reachability.getCommitId(graph.get(i))));
+            }
+        }
+        assertEquals(-1, reachability.getCommitId(new CommitNode(ObjectId.zeroId())));
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs;
+
+import static org.junit.Assert.assertEquals;
+
+import de.featjar.util.tree.Trees;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Test;
+import org.prop4j.And;
+import org.prop4j.Implies;
+import org.prop4j.Literal;
+import org.prop4j.Node;
+import org.prop4j.Not;
+import org.prop4j.Or;
+import org.spldev.varcs.BDDNodeDictionary;
+import org.spldev.varcs.CommitReachability;
+import org.spldev.varcs.ConditionCommitIndex;
+import org.spldev.varcs.FileMap;
+import org.spldev.varcs.NodeDictionary;
+import org.spldev.varcs.structure.BinaryFileNode;
+import org.spldev.varcs.structure.CommitNode;
+import org.spldev.varcs.structure.LineNode;
+import org.spldev.varcs.structure.TextFileNode;
+import org.spldev.varcs.visitors.StatisticVisitor;
+import org.spldev.varcs.visitors.StatisticVisitor.Statistic;
+
+public class TestConditionCommitIndex {
+
+    @Test
+    public void testNodeDictionary() throws IOException, GitAPIException {
+        testIndex(new NodeDictionary());
+    }
+
+    @Test
+    public void testBDDNodeDictionary() throws IOException, GitAPIException {
+        testIndex(new BDDNodeDictionary());
+    }
+
+    @Test
+    public void testStatistics() throws IOException, GitAPIException {
+        try (CommitGraph graph = new CommitGraph();
+                FileMap fileMap = new FileMap()) {
+            // More commits than fit into one batch of StatisticVisitor.
+            final int commitCount = 150;
+            graph.addRandom(new Random(4), commitCount, 0.3);
+            final NodeDictionary nodeDictionary = fileMap.getConditionDictionary();
+            final Node[] literals = new Node[commitCount];
+            for (int i = 0; i < commitCount; i++) {
+                literals[i] = new Literal(graph.getVariable(i));
+                nodeDictionary.putVariable(graph.getVariable(i));
+            }
+
+            final Random random = new Random(5);
+            for (int i = 0; i < 10; i++) {
+                final BinaryFileNode binaryFileNode = new BinaryFileNode("file" + i + ".bin");
+                binaryFileNode.setCondition(nodeDictionary.getIndex(randomCondition(graph, random)));
+                fileMap.addBinaryNode(binaryFileNode);
+
+                final TextFileNode textFileNode = new TextFileNode("file" + i + ".c");
+                textFileNode.setCondition(nodeDictionary.getIndex(randomCondition(graph, random)));
+                for (int j = 0; j < 20; j++) {
+                    textFileNode
+                            .getDataNodes()
+                            .add(new LineNode("line" + j, nodeDictionary.getIndex(randomCondition(graph, random))));
+                }
+                fileMap.addTextNode(textFileNode);
+            }
+
+            final ConditionCommitIndex index =
+                    new ConditionCommitIndex(graph.getRoot(), graph.getGitUtils(), nodeDictionary);
+            final CommitReachability reachability = new CommitReachability(graph.getRoot(), graph.getGitUtils());
+            final HashMap<CommitNode, Statistic> statistics = Trees.traverse(
+                            graph.getRoot(),
+                            new StatisticVisitor(graph.getGitUtils(), fileMap, new Or(literals), reachability))
+                    .orElseThrow();
+
+            // Both inspect every commit once, merges included, so the averages in the statistics agree.
+            assertEquals(index.getCommitCount(), statistics.size());
+            assertEquals(
+                    index.countActive(fileMap.getBinaryFileMap().values()),
+                    statistics.values().stream().mapToLong(s -> s.activeBinaryFiles).sum());
+            assertEquals(
+                    index.countActive(fileMap.getTextFileMap().values()),
+                    statistics.values().stream().mapToLong(s -> s.activeTextFiles).sum());
+            assertEquals(
+                    fileMap.getTextFileMap().values().stream()
+                            .mapToLong(index::countActiveData)
+                            .sum(),
+                    statistics.values().stream().mapToLong(s -> s.loc).sum());
+            for (final CommitNode commit : graph.getCommits()) {
+                final Statistic statistic = statistics.get(commit);
+                long activeTextFiles = 0;
+                long loc = 0;
+                for (final TextFileNode textFileNode : fileMap.getTextFileMap().values()) {
+                    if (index.isActive(textFileNode.getCondition(), commit)) {
+                        activeTextFiles++;
+                        for (final LineNode lineNode : textFileNode.getDataNodes()) {
+                            if (index.isActive(lineNode.getCondition(), commit)) {
+                                loc++;
+                            }
+                        }
+                    }
+                }
+                assertEquals(
+                        fileMap.getBinaryFileMap().values().stream()
+                                .filter(f -> index.isActive(f.getCondition(), commit))
+                                .count(),
+                        statistic.activeBinaryFiles);
+                assertEquals(activeTextFiles, statistic.activeTextFiles);
+                assertEquals(loc, statistic.loc);
+            }
+        }
+    }
+
+    private static void testIndex(NodeDictionary nodeDictionary) throws IOException, GitAPIException {
+        try (CommitGraph graph = new CommitGraph()) {
+            final int commitCount = 60;
+            graph.addRandom(new Random(2), commitCount, 0.2);
+            for (int i = 0; i < commitCount; i++) {
+                nodeDictionary.putVariable(graph.getVariable(i));
+            }
+
+            final Random random = new Random(3);
+            final List<Integer> conditions = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                conditions.add(nodeDictionary.getIndex(randomCondition(graph, random)));
+                conditions.add(nodeDictionary.getIndex(randomLiteral(graph, random)));
+            }
+
+            final ConditionCommitIndex index =
+                    new ConditionCommitIndex(graph.getRoot(), graph.getGitUtils(), nodeDictionary);
+            assertEquals(commitCount, index.getCommitCount());
+            for (int i = 0; i < commitCount; i++) {
+                final BitSetAssignment assignment = new BitSetAssignment();
+                final BitSet ancestors = graph.getAncestors(i);
+                for (int j = ancestors.nextSetBit(0); j >= 0; j = ancestors.nextSetBit(j + 1)) {
+                    assignment.set(nodeDictionary.getVariableIndex(graph.getVariable(j)));
+                }
+                assertEquals(graph.get(i), index.getCommit(index.getCommitId(graph.get(i))));
+                for (final int condition : conditions) {
+                    assertEquals(
+                            nodeDictionary.evaluate(condition, assignment), index.isActive(condition, graph.get(i)));
+                }
+            }
+        } finally {
+            nodeDictionary.close();
+        }
+    }
+
+    private static Node randomCondition(CommitGraph graph, Random random) {
+        final Node a = randomLiteral(graph, random);
+        final Node b = randomLiteral(graph, random);
+        final Node c = randomLiteral(graph, random);
+        return new Or(new And(a, new Not(b)), new Implies(b, c));
+    }
+
+    private static Node randomLiteral(CommitGraph graph, Random random) {
+        return new Literal(graph.getVariable(random.nextInt(graph.getCommits().size())), random.nextBoolean());
+    }
+}
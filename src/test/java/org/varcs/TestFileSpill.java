@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.prop4j.Literal;
+import org.spldev.varcs.FileSpill;
+import org.spldev.varcs.LinePool;
+import org.spldev.varcs.structure.LineNode;
+import org.spldev.varcs.structure.TextFileNode;
+
+public class TestFileSpill {
+
+    @Test
+    public void testSpillAndLoad() throws IOException {
+        final Path directory = Files.createTempDirectory("varcs-test");
+        final Path spillDirectory = directory.resolve("spill");
+        try (FileSpill fileSpill = new FileSpill(spillDirectory, 20_000, new LinePool())) {
+            final List<TextFileNode> fileNodes = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                final TextFileNode fileNode = new TextFileNode("file" + i + ".c");
+                fileNode.setCondition(i);
+                for (int j = 0; j < 100; j++) {
+                    final LineNode lineNode = new LineNode("file " + i + " line " + j, j);
+                    lineNode.setPresenceCondition(j + 1);
+                    fileNode.getDataNodes().add(lineNode);
+                }
+                fileNodes.add(fileNode);
+            }
+            // Preprocessor conditions are not written to spill files, so this file must stay in memory.
+            fileNodes.get(0).getDataNodes().get(0).setPPConditions(Collections.singletonList(new Literal("A")));
+            for (final TextFileNode fileNode : fileNodes) {
+                fileSpill.register(fileNode);
+            }
+
+            fileSpill.evict();
+            assertFalse(fileNodes.get(0).isSpilled());
+            int spilledCount = 0;
+            for (final TextFileNode fileNode : fileNodes) {
+                if (fileNode.isSpilled()) {
+                    spilledCount++;
+                    assertEquals(0, fileNode.getLoadedLineCount());
+                }
+            }
+            assertTrue(spilledCount >= 8);
+
+            for (int i = 0; i < fileNodes.size(); i++) {
+                final TextFileNode fileNode = fileNodes.get(i);
+                assertEquals(100, fileNode.getLineCount());
+                assertFalse(fileNode.isSpilled());
+                assertEquals(i, fileNode.getCondition());
+                for (int j = 0; j < 100; j++) {
+                    assertEquals("file " + i + " line " + j, fileNode.getLine(j));
+                    assertEquals(j, fileNode.getLineCondition(j));
+                    assertEquals(j + 1, fileNode.getLinePresenceCondition(j));
+                }
+            }
+
+            // Files that were touched since the last eviction are kept.
+            fileSpill.evict();
+            for (final TextFileNode fileNode : fileNodes) {
+                assertFalse(fileNode.isSpilled());
+            }
+            fileSpill.evict();
+            assertTrue(fileNodes.get(9).isSpilled());
+        }
+        assertFalse(Files.exists(spillDirectory));
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testRemapSpilledFile() throws IOException {
+        final Path directory = Files.createTempDirectory("varcs-test");
+        final Path spillDirectory = directory.resolve("spill");
+        try (FileSpill fileSpill = new FileSpill(spillDirectory, 0, new LinePool())) {
+            final TextFileNode fileNode = new TextFileNode("file.c");
+            for (int j = 0; j < 100; j++) {
+                final LineNode lineNode = new LineNode("line " + j, j % 10);
+                if ((j % 3) == 0) {
+                    lineNode.setPresenceCondition(10 + (j % 7));
+                }
+                fileNode.getDataNodes().add(lineNode);
+            }
+            fileSpill.register(fileNode);
+            assertFalse(fileSpill.remapConditions(fileNode, condition -> condition));
+
+            fileSpill.evict();
+            assertTrue(fileNode.isSpilled());
+            assertTrue(fileSpill.remapConditions(fileNode, condition -> condition + 100));
+            assertTrue(fileSpill.remapConditions(fileNode, condition -> 2 * condition));
+            assertTrue(fileNode.isSpilled());
+
+            assertEquals(100, fileNode.getLineCount());
+            for (int j = 0; j < 100; j++) {
+                assertEquals("line " + j, fileNode.getLine(j));
+                assertEquals(2 * ((j % 10) + 100), fileNode.getLineCondition(j));
+                final int presenceCondition = ((j % 3) == 0) ? 2 * (10 + (j % 7) + 100) : -1;
+                assertEquals(presenceCondition, fileNode.getLinePresenceCondition(j));
+            }
+
+            // A file that is spilled again after loading is written with its remapped conditions.
+            fileSpill.evict();
+            fileSpill.evict();
+            assertTrue(fileNode.isSpilled());
+            assertEquals(200, fileNode.getLineCondition(0));
+        }
+        assertFalse(Files.exists(spillDirectory));
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.spldev.varcs.LinePool;
+
+public class TestLinePool {
+
+    @Test
+    public void testIntern() {
+        final LinePool linePool = new LinePool();
+        final String line = new String("int x = 0;");
+        final String otherLine = new String("int x = 0;");
+        assertNotSame(line, otherLine);
+        assertSame(line, linePool.intern(line));
+        assertSame(line, linePool.intern(otherLine));
+        assertSame(line, linePool.intern(new String("int x = 0;")));
+        final String differentLine = linePool.intern("return x;");
+        assertEquals("return x;", differentLine);
+        assertEquals(2, linePool.size());
+
+        assertEquals(4, linePool.getRequestCount());
+        assertEquals((3 * line.length()) + differentLine.length(), linePool.getRequestedCharacters());
+        assertEquals(line.length() + differentLine.length(), linePool.getPooledCharacters());
+        assertEquals(
+                (double) linePool.getRequestedCharacters() / linePool.getPooledCharacters(),
+                linePool.getDedupRatio(),
+                0);
+
+        linePool.clear();
+        assertEquals(0, linePool.size());
+        assertEquals(0, linePool.getRequestCount());
+        assertEquals(1, linePool.getDedupRatio(), 0);
+        assertSame(otherLine, linePool.intern(otherLine));
+    }
+
+    @Test
+    public void testConcurrentIntern() throws InterruptedException {
+        final LinePool linePool = new LinePool();
+        final String[][] results = new String[4][1000];
+        final Thread[] threads = new Thread[results.length];
+        for (int t = 0; t < threads.length; t++) {
+            final String[] result = results[t];
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = linePool.intern(new String("line " + i));
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1000, linePool.size());
+        for (int i = 0; i < 1000; i++) {
+            for (int t = 1; t < results.length; t++) {
+                assertSame(results[0][i], results[t][i]);
+            }
+        }
+    }
+}
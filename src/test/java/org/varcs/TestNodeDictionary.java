@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.prop4j.And;
+import org.prop4j.Equals;
+import org.prop4j.Implies;
+import org.prop4j.Literal;
+import org.prop4j.Node;
+import org.prop4j.Not;
+import org.prop4j.Or;
+import org.spldev.varcs.AssignmentBatch;
+import org.spldev.varcs.BDDNodeDictionary;
+import org.spldev.varcs.CompactNodeDictionary;
+import org.spldev.varcs.NodeDictionary;
+
+public class TestNodeDictionary {
+
+    private static final String[] VARIABLES = {"a", "b", "c", "d", "e"};
+
+    @Test
+    public void testNodeDictionary() {
+        try (NodeDictionary nodeDictionary = new NodeDictionary()) {
+            testEvaluation(nodeDictionary);
+        }
+    }
+
+    @Test
+    public void testCompactNodeDictionary() {
+        try (NodeDictionary nodeDictionary = new CompactNodeDictionary()) {
+            testEvaluation(nodeDictionary);
+        }
+    }
+
+    @Test
+    public void testBDDNodeDictionary() {
+        try (NodeDictionary nodeDictionary = new BDDNodeDictionary()) {
+            testEvaluation(nodeDictionary);
+        }
+    }
+
+    @Test
+    public void testEqualConditionsShareIndex() {
+        try (NodeDictionary nodeDictionary = new NodeDictionary()) {
+            final Node condition = new And(new Literal("a"), new Or(new Literal("b"), new Literal("c", false)));
+            final int index = nodeDictionary.getIndex(condition);
+            assertEquals(
+                    index,
+                    nodeDictionary.getIndex(
+                            new And(new Or(new Literal("c", false), new Literal("b")), new Literal("a"))));
+            assertSame(nodeDictionary.getCondition(index), nodeDictionary.getCondition(condition));
+            assertNotEquals(
+                    nodeDictionary.getIndex(new Implies(new Literal("a"), new Literal("b"))),
+                    nodeDictionary.getIndex(new Implies(new Literal("b"), new Literal("a"))));
+            assertNull(nodeDictionary.getCondition(new Literal("d")));
+        }
+    }
+
+    @Test
+    public void testBDDProgramsShareNodes() {
+        try (BDDNodeDictionary nodeDictionary = new BDDNodeDictionary()) {
+            final String[] variables = new String[20];
+            Node parity = new Literal("x0");
+            for (int i = 0; i < variables.length; i++) {
+                variables[i] = "x" + i;
+                if (i > 0) {
+                    parity = new Not(new Equals(parity, new Literal(variables[i])));
+                }
+            }
+            final int index = nodeDictionary.getIndex(parity);
+            // Expanded into a tree, the parity BDD has more than a million leaves.
+            assertTrue(nodeDictionary.getProgram(index).length < 1000);
+
+            final Random random = new Random(0);
+            for (int i = 0; i < 100; i++) {
+                final BitSetAssignment assignment = new BitSetAssignment();
+                boolean expected = false;
+                for (final String variable : variables) {
+                    if (random.nextBoolean()) {
+                        assignment.set(nodeDictionary.getVariableIndex(variable));
+                        expected = !expected;
+                    }
+                }
+                assertEquals(expected, nodeDictionary.evaluate(index, assignment));
+                assertEquals(expected, evaluateProgram(nodeDictionary, index, assignment));
+            }
+        }
+    }
+
+    @Test
+    public void testBDDLookupDoesNotAddNodes() {
+        try (BDDNodeDictionary nodeDictionary = new BDDNodeDictionary()) {
+            nodeDictionary.getIndex(new Or(new Literal("a"), new Literal("b")));
+            final int conditionCount = nodeDictionary.getConditionCount();
+            final int nodeCount = nodeDictionary.getNodeCount();
+            final int variableCount = nodeDictionary.getVariableCount();
+
+            final Node equivalent = new Not(new And(new Literal("a", false), new Literal("b", false)));
+            assertSame(equivalent, nodeDictionary.getCondition(equivalent));
+            assertNull(nodeDictionary.getCondition(new And(new Literal("a"), new Literal("b"))));
+            assertNull(nodeDictionary.getCondition(new Or(new Literal("a"), new Literal("c"))));
+            assertEquals(conditionCount, nodeDictionary.getConditionCount());
+            assertEquals(nodeCount, nodeDictionary.getNodeCount());
+            assertEquals(variableCount, nodeDictionary.getVariableCount());
+        }
+    }
+
+    private static void testEvaluation(NodeDictionary nodeDictionary) {
+        for (final String variable : VARIABLES) {
+            nodeDictionary.putVariable(variable);
+        }
+        final Random random = new Random(0);
+        final List<Node> conditions = new ArrayList<>();
+        final List<Integer> indexes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            final Node condition = randomNode(random, 4);
+            conditions.add(condition);
+            indexes.add(nodeDictionary.getIndex(condition));
+        }
+        for (int i = 0; i < conditions.size(); i++) {
+            assertEquals((int) indexes.get(i), nodeDictionary.getIndex(conditions.get(i)));
+        }
+        assertEvaluation(nodeDictionary, conditions, indexes);
+        assertBatchEvaluation(nodeDictionary, conditions, indexes, AssignmentBatch.CAPACITY);
+        assertBatchEvaluation(nodeDictionary, conditions, indexes, 5);
+
+        // Compaction transfers the live conditions into an empty dictionary of the same kind.
+
+        try (NodeDictionary target = nodeDictionary.createEmpty()) {
+            final List<Integer> targetIndexes = new ArrayList<>();
+            for (final int index : indexes) {
+                targetIndexes.add(nodeDictionary.transferCondition(index, target));
+            }
+            assertEvaluation(target, conditions, targetIndexes);
+        }
+    }
+
+
+    private static void assertEvaluation(NodeDictionary nodeDictionary, List<Node> conditions, List<Integer> indexes) {
+        for (int bits = 0; bits < (1 << VARIABLES.length); bits++) {
+            final BitSetAssignment assignment = new BitSetAssignment();
+            for (int i = 0; i < VARIABLES.length; i++) {
+                if ((bits & (1 << i)) != 0) {
+                    assignment.set(nodeDictionary.getVariableIndex(VARIABLES[i]));
+                }
+            }
+            // Evaluating twice also reads the truth values cached by the first pass.
+            for (int pass = 0; pass < 2; pass++) {
+                for (int i = 0; i < conditions.size(); i++) {
+                    assertEquals(
+                            evaluate(conditions.get(i), bits),
+                            nodeDictionary.evaluate(indexes.get(i), assignment));
+                }
+            }
+        }
+    }
+
+    // Lane i holds the assignment of the bit pattern 7 * i, so a full batch repeats all 32 patterns in a new order.
+    private static void assertBatchEvaluation(
+            NodeDictionary nodeDictionary, List<Node> conditions, List<Integer> indexes, int size) {
+        final AssignmentBatch batch = new AssignmentBatch();
+        for (int lane = 0; lane < size; lane++) {
+            final BitSetAssignment assignment = new BitSetAssignment();
+            for (int i = 0; i < VARIABLES.length; i++) {
+                if (((7 * lane) & (1 << i)) != 0) {
+                    assignment.set(nodeDictionary.getVariableIndex(VARIABLES[i]));
+                }
+            }
+            assertEquals(lane == (AssignmentBatch.CAPACITY - 1), batch.add(assignment));
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < conditions.size(); i++) {
+                final long active = nodeDictionary.evaluate(indexes.get(i), batch);
+                for (int lane = 0; lane < AssignmentBatch.CAPACITY; lane++) {
+                    final boolean expected = (lane < size) && evaluate(conditions.get(i), (7 * lane) & 31);
+                    assertEquals(expected, ((active >>> lane) & 1L) != 0);
+                }
+            }
+        }
+    }
+
+    // Interprets a condition program: an instruction is (operand << 3) | opcode, see ConditionProgram.
+    private static boolean evaluateProgram(NodeDictionary nodeDictionary, int index, BitSetAssignment assignment) {
+        final ArrayDeque<Boolean> stack = new ArrayDeque<>();
+        for (final int instruction : nodeDictionary.getProgram(index)) {
+            final int operand = instruction >>> 3;
+            switch (instruction & 7) {
+                case 0:
+                    stack.push(assignment.get(operand));
+                    break;
+                case 1:
+                    stack.push(!assignment.get(operand));
+                    break;
+                case 2:
+                    stack.push(evaluateProgram(nodeDictionary, operand, assignment));
+                    break;
+                case 3:
+                    stack.push(!stack.pop());
+                    break;
+                case 4: {
+                    boolean result = true;
+                    for (int i = 0; i < operand; i++) {
+                        result &= stack.pop();
+                    }
+                    stack.push(result);
+                    break;
+                }
+                case 5: {
+                    boolean result = false;
+                    for (int i = 0; i < operand; i++) {
+                        result |= stack.pop();
+                    }
+                    stack.push(result);
+                    break;
+                }
+                case 6: {
+                    final boolean consequent = stack.pop();
+                    stack.push(!stack.pop() || consequent);
+                    break;
+                }
+                default:
+                    stack.push(stack.pop() == stack.pop());
+                    break;
+            }
+        }
+        return stack.pop();
+    }
+
+    private static Node randomNode(Random random, int depth) {
+        final int type = depth == 0 ? 0 : random.nextInt(6);
+        switch (type) {
+            case 0:
+                return new Literal(VARIABLES[random.nextInt(VARIABLES.length)], random.nextBoolean());
+            case 1:
+                return new Not(randomNode(random, depth - 1));
+            case 2:
+                return new And(randomChildren(random, depth - 1));
+            case 3:
+                return new Or(randomChildren(random, depth - 1));
+            case 4:
+                return new Implies(randomNode(random, depth - 1), randomNode(random, depth - 1));
+            default:
+                return new Equals(randomNode(random, depth - 1), randomNode(random, depth - 1));
+        }
+    }
+
+    private static Node[] randomChildren(Random random, int depth) {
+        final Node[] children = new Node[2 + random.nextInt(2)];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = randomNode(random, depth);
+        }
+        return children;
+    }
+
+    private static boolean evaluate(Node node, int bits) {
+        if (node instanceof Literal) {
+            final Literal literal = (Literal) node;
+            int variable = 0;
+            while (!VARIABLES[variable].equals(literal.var)) {
+                variable++;
+            }
+            return ((bits & (1 << variable)) != 0) == literal.positive;
+        }
+        final Node[] children = node.getChildren();
+        if (node instanceof Not) {
+            return !evaluate(children[0], bits);
+        } else if (node instanceof And) {
+            for (final Node child : children) {
+                if (!evaluate(child, bits)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (node instanceof Or) {
+            for (final Node child : children) {
+                if (evaluate(child, bits)) {
+                    return true;
+                }
+            }
+            return false;
+        } else if (node instanceof Implies) {
+            return !evaluate(children[0], bits) || evaluate(children[1], bits);
+        } else {
+            return evaluate(children[0], bits) == evaluate(children[1], bits);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.prop4j.And;
+import org.prop4j.AtMost;
+import org.prop4j.Implies;
+import org.prop4j.Literal;
+import org.prop4j.Node;
+import org.prop4j.Not;
+import org.prop4j.Or;
+import org.spldev.varcs.NodeInterner;
+import org.spldev.varcs.NodeInterner.InternedNode;
+
+public class TestNodeInterner {
+
+    @Test
+    public void testStructuralEquality() {
+        final NodeInterner interner = new NodeInterner();
+        final InternedNode interned = interner.intern(new And(new Literal("a"), new Not(new Literal("b"))));
+        assertSame(interned, interner.intern(new And(new Literal("a"), new Not(new Literal("b")))));
+        assertSame(interned, interner.intern(new And(new Not(new Literal("b")), new Literal("a"))));
+        assertNotSame(interned, interner.intern(new Or(new Literal("a"), new Not(new Literal("b")))));
+        assertNotSame(
+                interner.intern(new Implies(new Literal("a"), new Literal("b"))),
+                interner.intern(new Implies(new Literal("b"), new Literal("a"))));
+        assertNotSame(interner.intern(new Literal("a")), interner.intern(new Literal("a", false)));
+    }
+
+    @Test
+    public void testSharedSubtrees() {
+        final NodeInterner interner = new NodeInterner();
+        final Node literal = interner.intern(new Literal("a")).getNode();
+        final Node node = interner.intern(new Or(new Literal("a"), new Literal("b"))).getNode();
+        assertSame(literal, node.getChildren()[0]);
+        final Node negation = interner.intern(new Not(new Or(new Literal("a"), new Literal("b"))))
+                .getNode();
+        assertSame(node, negation.getChildren()[0]);
+        assertEquals(4, interner.size());
+    }
+
+    @Test
+    public void testFind() {
+        final NodeInterner interner = new NodeInterner();
+        assertNull(interner.find(new Literal("a")));
+        final InternedNode interned = interner.intern(new Or(new Literal("a"), new Literal("b")));
+        assertSame(interned, interner.find(new Or(new Literal("b"), new Literal("a"))));
+        assertNull(interner.find(new Or(new Literal("a"), new Literal("c"))));
+        assertEquals(-1, interned.getCondition());
+        assertEquals(3, interner.size());
+
+        interner.clear();
+        assertEquals(0, interner.size());
+        assertNull(interner.find(new Literal("a")));
+    }
+
+    @Test
+    public void testManyNodes() {
+        final NodeInterner interner = new NodeInterner();
+        for (int i = 0; i < 10_000; i++) {
+            interner.intern(new And(new Literal("v" + i), new Literal("v" + (i + 1))));
+        }
+        assertEquals(10_001 + 10_000, interner.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertSame(
+                    interner.find(new And(new Literal("v" + i), new Literal("v" + (i + 1)))).getNode(),
+                    interner.intern(new And(new Literal("v" + (i + 1)), new Literal("v" + i))).getNode());
+        }
+        assertEquals(10_001 + 10_000, interner.size());
+    }
+
+    @Test
+    public void testCanonicalNodes() {
+        final NodeInterner interner = new NodeInterner();
+        final InternedNode interned = interner.intern(new And(new Literal("a"), new Not(new Literal("b"))));
+        final Node canonical = interned.getNode();
+        assertSame(interned, interner.find(canonical));
+        assertSame(interned, interner.intern(canonical));
+
+        // A new node over canonical children shares them and reuses the entries of the children.
+        final Node[] children = canonical.getChildren();
+        final InternedNode disjunction = interner.intern(new Or(children[1], children[0]));
+        assertSame(children[0], disjunction.getNode().getChildren()[1]);
+        assertSame(children[1], disjunction.getNode().getChildren()[0]);
+        assertSame(interned, interner.intern(new And(children[1], children[0])));
+        assertEquals(5, interner.size());
+
+        interner.clear();
+        assertNull(interner.find(canonical));
+    }
+
+    @Test
+    public void testConcurrentInterning() throws InterruptedException {
+        final NodeInterner interner = new NodeInterner();
+        final Node[][] results = new Node[4][2_000];
+        final Thread[] threads = new Thread[results.length];
+        for (int t = 0; t < threads.length; t++) {
+            final Node[] result = results[t];
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < result.length; i++) {
+                    result[i] = interner.intern(new Or(new Literal("v" + i), new Not(new Literal("v" + (i + 1)))))
+                            .getNode();
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < results[0].length; i++) {
+            for (int t = 1; t < results.length; t++) {
+                assertSame(results[0][i], results[t][i]);
+            }
+            assertSame(results[0][i], interner.find(results[0][i]).getNode());
+        }
+        assertEquals(2_001 + 2_000 + 2_000, interner.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCardinalityConstraint() {
+        new NodeInterner().intern(new AtMost(1, new Literal("a"), new Literal("b")));
+    }
+}
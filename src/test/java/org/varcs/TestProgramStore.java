@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.spldev.varcs.MappedProgramStore;
+import org.spldev.varcs.ProgramStore;
+
+public class TestProgramStore {
+
+    @Test
+    public void testProgramStore() {
+        try (ProgramStore programs = new ProgramStore()) {
+            testPrograms(programs);
+        }
+    }
+
+    @Test
+    public void testMappedProgramStore() {
+        try (ProgramStore programs = new MappedProgramStore()) {
+            testPrograms(programs);
+        }
+    }
+
+    @Test
+    public void testFileMappedProgramStore() throws IOException {
+        final Path directory = Files.createTempDirectory("varcs-test");
+        try (ProgramStore programs = new MappedProgramStore(directory)) {
+            testPrograms(programs);
+        }
+        try {
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(0, files.count());
+            }
+        } finally {
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testCreateEmpty() throws IOException {
+        final Path directory = Files.createTempDirectory("varcs-test");
+        try {
+            final MappedProgramStore programs1 = new MappedProgramStore(directory);
+            testPrograms(programs1);
+            final MappedProgramStore programs2 = programs1.createEmpty();
+            programs1.close();
+            programs1.close();
+
+            // Each compaction replaces the old store, whose mapping is then reused by the next one.
+            for (int i = 0; i < 3; i++) {
+                testPrograms(programs2);
+                final MappedProgramStore programs3 = programs2.createEmpty();
+                programs3.set(0, new int[] {1, 2, 3});
+                assertArrayEquals(new int[] {1, 2, 3}, programs3.get(0));
+                assertArrayEquals(new int[] {42}, programs2.get(0));
+                testPrograms(programs3);
+                programs3.close();
+            }
+            programs2.close();
+        } finally {
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void testProgramsSpanningSegments() {
+        try (ProgramStore programs = new MappedProgramStore()) {
+            final int[] program = new int[600_000];
+            Arrays.fill(program, 7);
+            programs.set(0, program);
+            programs.set(1, new int[] {1, 2});
+            programs.set(2, program);
+            assertArrayEquals(program, programs.get(0));
+            assertArrayEquals(new int[] {1, 2}, programs.get(1));
+            assertArrayEquals(program, programs.get(2));
+        }
+    }
+
+    private static void testPrograms(ProgramStore programs) {
+        final Random random = new Random(0);
+        final int[][] expectedPrograms = new int[5000][];
+        for (int i = 0; i < expectedPrograms.length; i++) {
+            final int[] program = new int[1 + random.nextInt(20)];
+            for (int j = 0; j < program.length; j++) {
+                program[j] = random.nextInt();
+            }
+            expectedPrograms[i] = program;
+            programs.set(i, program.clone());
+        }
+        final int[] buffer = new int[20];
+        for (int i = 0; i < expectedPrograms.length; i++) {
+            final int[] program = expectedPrograms[i];
+            assertArrayEquals(program, programs.get(i));
+            assertEquals(program.length, programs.getLength(i));
+            assertArrayEquals(program, Arrays.copyOf(programs.get(i, buffer), program.length));
+            assertTrue(programs.equals(i, program));
+            final int[] otherProgram = program.clone();
+            otherProgram[0]++;
+            assertFalse(programs.equals(i, otherProgram));
+            assertFalse(programs.equals(i, Arrays.copyOf(program, program.length + 1)));
+        }
+
+        programs.clear();
+        programs.set(0, new int[] {42});
+        assertArrayEquals(new int[] {42}, programs.get(0));
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs.git;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.junit.Test;
+import org.spldev.varcs.git.BlobPrefetcher;
+import org.spldev.varcs.git.BlobPrefetcher.Prefetch;
+import org.varcs.CommitGraph;
+
+public class TestBlobPrefetcher {
+
+    @Test
+    public void testByteBudget() throws IOException, GitAPIException, InterruptedException {
+        try (CommitGraph graph = new CommitGraph();
+                BlobPrefetcher blobPrefetcher = new BlobPrefetcher(graph.getGitUtils(), 2, 10);
+                ObjectReader reader = graph.getGit().getRepository().newObjectReader()) {
+            final byte[][] blobs = new byte[3][];
+            final ObjectId[] objectIds = new ObjectId[blobs.length];
+            try (ObjectInserter inserter = graph.getGit().getRepository().newObjectInserter()) {
+                for (int i = 0; i < blobs.length; i++) {
+                    blobs[i] = ("blob " + i + "\n").getBytes(StandardCharsets.US_ASCII);
+                    objectIds[i] = inserter.insert(Constants.OBJ_BLOB, blobs[i]);
+                }
+                inserter.flush();
+            }
+            final long size = blobPrefetcher.getSize(reader, objectIds[0]);
+            assertEquals(blobs[0].length, size);
+            assertEquals(0, blobPrefetcher.getSize(reader, ObjectId.zeroId()));
+
+            // A blob is always admitted when nothing is reserved, even if it exceeds the budget on its own.
+            final Prefetch prefetch0 = blobPrefetcher.tryPrefetch(objectIds[0], size);
+            assertNotNull(prefetch0);
+            assertNull(blobPrefetcher.tryPrefetch(objectIds[1], size));
+            assertArrayEquals(blobs[0], prefetch0.get());
+
+            final Prefetch prefetch1 = blobPrefetcher.prefetch(objectIds[1], size);
+            prefetch1.discard();
+            prefetch1.discard();
+            final Prefetch prefetch2 = blobPrefetcher.tryPrefetch(objectIds[2], size);
+            assertNotNull(prefetch2);
+            assertArrayEquals(blobs[2], prefetch2.get());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs.git;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.junit.Test;
+import org.spldev.varcs.git.BlobStore;
+import org.varcs.CommitGraph;
+
+public class TestBlobStore {
+
+    @Test
+    public void testPut() {
+        final BlobStore blobStore = new BlobStore(null);
+        final byte[] bytes = {0, 1, 2, (byte) 0xff};
+        final ObjectId objectId = blobStore.put(bytes);
+        assertEquals(new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, bytes), objectId);
+        assertArrayEquals(bytes, blobStore.get(objectId));
+        assertSame(objectId, blobStore.put(bytes.clone()));
+        assertSame(objectId, blobStore.add(objectId.copy()));
+        assertEquals(1, blobStore.size());
+
+        blobStore.clear();
+        assertEquals(0, blobStore.size());
+        try {
+            blobStore.get(objectId);
+            fail();
+        } catch (final IllegalStateException e) {
+        }
+    }
+
+    @Test
+    public void testRepositoryBlobs() throws IOException, GitAPIException {
+        try (CommitGraph graph = new CommitGraph()) {
+            final byte[] bytes = "int x;\n".getBytes(StandardCharsets.US_ASCII);
+            final ObjectId objectId;
+            try (ObjectInserter inserter = graph.getGit().getRepository().newObjectInserter()) {
+                objectId = inserter.insert(Constants.OBJ_BLOB, bytes);
+                inserter.flush();
+            }
+            final BlobStore blobStore = new BlobStore(graph.getGit().getRepository());
+            final ObjectId pooledObjectId = blobStore.add(objectId);
+            assertSame(pooledObjectId, blobStore.add(objectId.copy()));
+            assertArrayEquals(bytes, blobStore.get(objectId.copy()));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs.git;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import org.eclipse.jgit.diff.DiffAlgorithm;
+import org.eclipse.jgit.diff.DiffAlgorithm.SupportedAlgorithm;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.junit.Test;
+import org.spldev.varcs.git.LineSequence;
+
+public class TestLineSequence {
+
+    @Test
+    public void testLineBreaks() {
+        assertLines("a\nbb\r\nccc\rdd", "a", "bb", "ccc", "dd");
+        assertLines("a\n", "a");
+        assertLines("a\n\nb\n", "a", "", "b");
+        assertLines("\n", "");
+        assertLines("");
+    }
+
+    @Test
+    public void testNonAsciiLines() {
+        final byte[] content = "int x;\n// gr\u00fc\u00dfe\nint y;".getBytes(StandardCharsets.UTF_8);
+        final LineSequence sequence = new LineSequence(content);
+        assertEquals(3, sequence.size());
+        assertEquals("int x;", sequence.getLine(0));
+        assertEquals(new String(content, 7, 10, Charset.defaultCharset()), sequence.getLine(1));
+        assertEquals("int y;", sequence.getLine(2));
+    }
+
+    @Test
+    public void testComparator() {
+        final byte[] content = "int x;\n// gr\u00fc\u00dfe\n\nint y;".getBytes(StandardCharsets.UTF_8);
+        final LineSequence fromBytes = new LineSequence(content);
+        final List<String> lines =
+                Arrays.asList("int x;", new String(content, 7, 10, Charset.defaultCharset()), "", "int y;");
+        final LineSequence fromLines = new LineSequence(lines);
+        assertEquals(fromLines.size(), fromBytes.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals(lines.get(i), fromLines.getLine(i));
+            assertEquals(LineSequence.COMPARATOR.hash(fromLines, i), LineSequence.COMPARATOR.hash(fromBytes, i));
+            assertTrue(LineSequence.COMPARATOR.equals(fromLines, i, fromBytes, i));
+            assertTrue(LineSequence.COMPARATOR.equals(fromBytes, i, fromLines, i));
+            assertTrue(LineSequence.COMPARATOR.equals(fromBytes, i, fromBytes, i));
+        }
+        assertFalse(LineSequence.COMPARATOR.equals(fromBytes, 0, fromBytes, 3));
+        assertFalse(LineSequence.COMPARATOR.equals(fromLines, 0, fromBytes, 2));
+    }
+
+    @Test
+    public void testDiff() {
+        final LineSequence oldLines = new LineSequence("a\nb\nc\nd\n".getBytes(StandardCharsets.US_ASCII));
+        final LineSequence newLines = new LineSequence(Arrays.asList("a", "x", "c", "d", "e"));
+        final EditList edits = DiffAlgorithm.getAlgorithm(SupportedAlgorithm.HISTOGRAM)
+                .diff(LineSequence.COMPARATOR, oldLines, newLines);
+        assertEquals(2, edits.size());
+        assertEquals(new Edit(1, 2, 1, 2), edits.get(0));
+        assertEquals(new Edit(4, 4, 4, 5), edits.get(1));
+    }
+
+    private static void assertLines(String text, String... lines) {
+        final LineSequence sequence = new LineSequence(text.getBytes(StandardCharsets.US_ASCII));
+        assertEquals(lines.length, sequence.size());
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(lines[i], sequence.getLine(i));
+        }
+    }
+}
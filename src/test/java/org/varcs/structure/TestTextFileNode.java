@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs.structure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.prop4j.Literal;
+import org.prop4j.Node;
+import org.spldev.varcs.structure.LineNode;
+import org.spldev.varcs.structure.TextFileNode;
+
+public class TestTextFileNode {
+
+    @Test
+    public void testRandomEdits() {
+        final TextFileNode fileNode = new TextFileNode("file.c");
+        final List<LineNode> lines = fileNode.getDataNodes();
+        final ArrayList<LineNode> expectedLines = new ArrayList<>();
+        final Random random = new Random(0);
+        for (int i = 0; i < 5000; i++) {
+            final int operation = random.nextInt(10);
+            if ((operation < 5) || expectedLines.isEmpty()) {
+                final int index = random.nextInt(expectedLines.size() + 1);
+                final LineNode lineNode = createLine(i, random);
+                lines.add(index, lineNode);
+                expectedLines.add(index, lineNode);
+            } else if (operation < 8) {
+                final int index = random.nextInt(expectedLines.size());
+                assertLineEquals(expectedLines.remove(index), lines.remove(index));
+            } else if (operation < 9) {
+                final int index = random.nextInt(expectedLines.size());
+                final LineNode lineNode = createLine(i, random);
+                assertLineEquals(expectedLines.set(index, lineNode), lines.set(index, lineNode));
+            } else {
+                final int index = random.nextInt(expectedLines.size());
+                lines.get(index).setCondition(i);
+                expectedLines.get(index).setCondition(i);
+                fileNode.setLinePresenceCondition(index, i + 1);
+                expectedLines.get(index).setPresenceCondition(i + 1);
+            }
+        }
+
+        assertEquals(expectedLines.size(), fileNode.getLineCount());
+        assertEquals(expectedLines.size(), fileNode.getLoadedLineCount());
+        long characterCount = 0;
+        for (int i = 0; i < expectedLines.size(); i++) {
+            final LineNode expectedLine = expectedLines.get(i);
+            assertLineEquals(expectedLine, lines.get(i));
+            assertEquals(expectedLine.getData(), fileNode.getLine(i));
+            assertEquals(expectedLine.getCondition(), fileNode.getLineCondition(i));
+            assertEquals(expectedLine.getPresenceCondition(), fileNode.getLinePresenceCondition(i));
+            characterCount += expectedLine.getData().length();
+        }
+        assertEquals(characterCount, fileNode.getLoadedCharacterCount());
+
+        lines.clear();
+        assertEquals(0, fileNode.getLineCount());
+        assertEquals(0, fileNode.getLoadedCharacterCount());
+        lines.add(new LineNode("x", 1));
+        assertEquals("x", fileNode.getLine(0));
+    }
+
+    @Test
+    public void testPPConditions() {
+        final TextFileNode fileNode = new TextFileNode("file.c");
+        final List<LineNode> lines = fileNode.getDataNodes();
+        for (int i = 0; i < 20; i++) {
+            lines.add(new LineNode("line " + i, i));
+        }
+        assertFalse(fileNode.hasPendingPPConditions());
+        assertNull(lines.get(3).getPPConditions());
+
+        final List<Node> ppConditions = Collections.singletonList(new Literal("CONFIG_A"));
+        lines.get(3).setPPConditions(ppConditions);
+        assertTrue(fileNode.hasPendingPPConditions());
+        lines.add(0, new LineNode("first", 0));
+        assertEquals(ppConditions, lines.get(4).getPPConditions());
+        assertNull(lines.get(3).getPPConditions());
+
+        lines.get(4).setPPConditions(null);
+        assertFalse(fileNode.hasPendingPPConditions());
+    }
+
+    @Test
+    public void testRandomPPConditions() {
+        final TextFileNode fileNode = new TextFileNode("file.c");
+        final List<LineNode> lines = fileNode.getDataNodes();
+        final ArrayList<List<Node>> expectedPPConditions = new ArrayList<>();
+        final Random random = new Random(1);
+        for (int i = 0; i < 5000; i++) {
+            final int operation = random.nextInt(10);
+            if ((operation < 4) || expectedPPConditions.isEmpty()) {
+                final int index = random.nextInt(expectedPPConditions.size() + 1);
+                final LineNode lineNode = new LineNode("line " + i, i);
+                final List<Node> ppConditions = randomPPConditions(random);
+                lineNode.setPPConditions(ppConditions);
+                lines.add(index, lineNode);
+                expectedPPConditions.add(index, ppConditions);
+            } else if (operation < 8) {
+                final int index = random.nextInt(expectedPPConditions.size());
+                assertEquals(expectedPPConditions.remove(index), lines.remove(index).getPPConditions());
+            } else {
+                final int index = random.nextInt(expectedPPConditions.size());
+                final List<Node> ppConditions = randomPPConditions(random);
+                lines.get(index).setPPConditions(ppConditions);
+                expectedPPConditions.set(index, ppConditions);
+            }
+            assertEquals(
+                    expectedPPConditions.stream().anyMatch(c -> c != null), fileNode.hasPendingPPConditions());
+        }
+        for (int i = 0; i < expectedPPConditions.size(); i++) {
+            assertEquals(expectedPPConditions.get(i), lines.get(i).getPPConditions());
+        }
+    }
+
+    // Mostly null, so the file often runs out of pending conditions.
+    private static List<Node> randomPPConditions(Random random) {
+        return random.nextInt(4) == 0 ? Collections.singletonList(new Literal("CONFIG_" + random.nextInt(3))) : null;
+    }
+
+    private static LineNode createLine(int i, Random random) {
+        final LineNode lineNode = new LineNode("line " + i, random.nextInt(100));
+        lineNode.setPresenceCondition(random.nextInt(100));
+        return lineNode;
+    }
+
+    private static void assertLineEquals(LineNode expectedLine, LineNode line) {
+        assertEquals(expectedLine.getData(), line.getData());
+        assertEquals(expectedLine.getCondition(), line.getCondition());
+        assertEquals(expectedLine.getPresenceCondition(), line.getPresenceCondition());
+        assertEquals(expectedLine.getPPConditions(), line.getPPConditions());
+    }
+}
@@ -41,6 +41,7 @@ import org.spldev.varcs.NodeDictionary;
 import org.spldev.varcs.git.GitUtils;
 import org.spldev.varcs.structure.BinaryFileNode;
 import org.spldev.varcs.structure.CommitNode;
+import org.spldev.varcs.structure.ConditionalNode;
 import org.spldev.varcs.structure.DataNode;
 import org.spldev.varcs.structure.LineNode;
 import org.spldev.varcs.structure.TextFileNode;
@@ -99,6 +100,10 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
         }
     }
 
+    private boolean isActive(ConditionalNode node, Map<Object, Boolean> assignment) {
+        return nodeDictionary.getCondition(node.getCondition()).getValue(assignment);
+    }
+
     private VisitorResult test(CommitNode curCommit, Map<Object, Boolean> assignment) throws IOException {
         fileMap = new FileMap();
         fileMap.getBinaryFileMap().putAll(orgFileMap.getBinaryFileMap());
@@ -121,7 +126,7 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
 
                 final byte[] bytes = gitUtils.getBytes(objectId);
                 if (bytes == null) {
-                    if ((binaryFileNode != null) && binaryFileNode.isActive(assignment, nodeDictionary)) {
+                    if ((binaryFileNode != null) && isActive(binaryFileNode, assignment)) {
                         Logger.logInfo("Should be inactive or null: ");
                         Logger.logInfo(assignment.toString());
                         Logger.logInfo(pathString);
@@ -132,7 +137,7 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
                         Assert.fail();
                         continue;
                     }
-                    if ((textFileNode != null) && textFileNode.isActive(assignment, nodeDictionary)) {
+                    if ((textFileNode != null) && isActive(textFileNode, assignment)) {
                         Logger.logInfo("Should be inactive or null: ");
                         Logger.logInfo(assignment.toString());
                         Logger.logInfo(pathString);
@@ -154,7 +159,7 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
                             Assert.fail();
                             continue;
                         }
-                        if (!binaryFileNode.isActive(assignment, nodeDictionary)) {
+                        if (!isActive(binaryFileNode, assignment)) {
                             Logger.logInfo("Should be active: ");
                             Logger.logInfo(assignment.toString());
                             Logger.logInfo(pathString);
@@ -165,7 +170,7 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
                             Assert.fail();
                             continue;
                         }
-                        if ((textFileNode != null) && textFileNode.isActive(assignment, nodeDictionary)) {
+                        if ((textFileNode != null) && isActive(textFileNode, assignment)) {
                             Logger.logInfo("Should be a binary file: ");
                             Logger.logInfo(pathString);
                             Logger.logInfo("");
@@ -181,7 +186,7 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
                             Assert.fail();
                             continue;
                         }
-                        if (!textFileNode.isActive(assignment, nodeDictionary)) {
+                        if (!isActive(textFileNode, assignment)) {
                             Logger.logInfo("Should be active: ");
                             Logger.logInfo(assignment.toString());
                             Logger.logInfo(pathString);
@@ -192,7 +197,7 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
                             Assert.fail();
                             continue;
                         }
-                        if ((binaryFileNode != null) && binaryFileNode.isActive(assignment, nodeDictionary)) {
+                        if ((binaryFileNode != null) && isActive(binaryFileNode, assignment)) {
                             Logger.logInfo("Should be a text file: ");
                             Logger.logInfo(pathString);
                             Logger.logInfo("");
@@ -201,8 +206,8 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
                         }
                         final List<LineNode> lineNodeList = textFileNode.getDataNodes();
 
-                        final List<String> lines1 = textFileNode
-                                .getActiveData(assignment, nodeDictionary) //
+                        final List<String> lines1 = lineNodeList.stream()
+                                .filter(lineNode -> isActive(lineNode, assignment)) //
                                 .map(DataNode::getData) //
                                 .collect(Collectors.toList());
                         final List<String> lines2 = gitUtils.getLines(bytes);
@@ -227,7 +232,7 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
 
         for (final Entry<String, BinaryFileNode> entry :
                 fileMap.getBinaryFileMap().entrySet()) {
-            if (entry.getValue().isActive(assignment, nodeDictionary)) {
+            if (isActive(entry.getValue(), assignment)) {
                 Logger.logInfo("");
                 Logger.logInfo("Should not be active: ");
                 Logger.logInfo("\t" + assignment);
@@ -239,7 +244,7 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
         }
 
         for (final Entry<String, TextFileNode> entry : fileMap.getTextFileMap().entrySet()) {
-            if (entry.getValue().isActive(assignment, nodeDictionary)) {
+            if (isActive(entry.getValue(), assignment)) {
                 Logger.logInfo("");
                 Logger.logInfo("Should not be active: ");
                 Logger.logInfo("\t" + assignment);
@@ -261,8 +266,9 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
             List<LineNode> lineNodeList,
             final List<String> lines2) {
         if (pathString.matches(AnnotationExtractor.CFileRegex)) {
-            lineNodeList =
-                    textFileNode.getActiveData(assignment, nodeDictionary).collect(Collectors.toList());
+            lineNodeList = lineNodeList.stream()
+                    .filter(lineNode -> isActive(lineNode, assignment))
+                    .collect(Collectors.toList());
             final List<Node> pcList2 = AnnotationExtractor.extractPresenceConditions(lines2);
             if (pcList2 != null) {
                 int lineNumber = 0;
@@ -302,7 +308,7 @@ public class CommitTester implements TreeVisitor<Void, CommitNode> {
             if (line1 != null) {
                 do {
                     lineNode = it3.next();
-                } while (!lineNode.isActive(assignment, nodeDictionary));
+                } while (!isActive(lineNode, assignment));
             } else {
                 lineNode = it3.hasNext() ? it3.next() : null;
             }
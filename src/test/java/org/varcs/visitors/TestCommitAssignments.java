@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2023 Sebastian Krieter
+ *
+ * This file is part of evaluation-variant-inc.
+ *
+ * evaluation-variant-inc is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3.0 of the License,
+ * or (at your option) any later version.
+ *
+ * evaluation-variant-inc is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with evaluation-variant-inc. If not, see <https://www.gnu.org/licenses/>.
+ *
+ * See <> for further information.
+ */
+package org.varcs.visitors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.Test;
+import org.prop4j.Literal;
+import org.prop4j.Not;
+import org.prop4j.Or;
+import org.spldev.varcs.CommitReachability;
+import org.spldev.varcs.NodeDictionary;
+import org.spldev.varcs.VariableAssignment;
+import org.spldev.varcs.structure.CommitNode;
+import org.spldev.varcs.visitors.CommitAssignments;
+import org.varcs.CommitGraph;
+
+public class TestCommitAssignments {
+
+    @Test
+    public void testAssignmentsFollowAncestry() throws IOException, GitAPIException {
+        try (CommitGraph graph = new CommitGraph()) {
+            graph.addRandom(new Random(1), 100, 0.2);
+            final NodeDictionary nodeDictionary = new NodeDictionary();
+            final CommitReachability reachability = new CommitReachability(graph.getRoot(), graph.getGitUtils());
+            final CommitAssignments assignments = new CommitAssignments(nodeDictionary, reachability);
+            for (int i = 0; i < graph.getCommits().size(); i++) {
+                final CommitNode commit = graph.get(i);
+                assertTrue(assignments.hasAllParents(commit));
+                final VariableAssignment assignment = assignments.create(commit, graph.getVariable(i));
+                final BitSet ancestors = graph.getAncestors(i);
+                for (int j = 0; j <= i; j++) {
+                    final int variableIndex = nodeDictionary.getVariableIndex(graph.getVariable(j));
+                    assertEquals(ancestors.get(j), assignment.get(variableIndex));
+                }
+            }
+            assertEquals(graph.getCommits().size(), assignments.size());
+        }
+    }
+
+    @Test
+    public void testTruthValuesAreResetForNewVariables() throws IOException, GitAPIException {
+        try (CommitGraph graph = new CommitGraph()) {
+            graph.add();
+            graph.add(0);
+            graph.add(0);
+            graph.add(1, 2);
+            final NodeDictionary nodeDictionary = new NodeDictionary();
+            final CommitReachability reachability = new CommitReachability(graph.getRoot(), graph.getGitUtils());
+            final CommitAssignments assignments = new CommitAssignments(nodeDictionary, reachability);
+            final int condition1 = nodeDictionary.getIndex(new Literal(graph.getVariable(1)));
+            final int condition2 = nodeDictionary.getIndex(
+                    new Or(new Literal(graph.getVariable(2)), new Not(new Literal(graph.getVariable(0)))));
+
+            final VariableAssignment assignment0 = assignments.create(graph.get(0), graph.getVariable(0));
+            assertFalse(nodeDictionary.evaluate(condition1, assignment0));
+            assertFalse(nodeDictionary.evaluate(condition2, assignment0));
+
+            final VariableAssignment assignment1 = assignments.create(graph.get(1), graph.getVariable(1));
+            assertTrue(nodeDictionary.evaluate(condition1, assignment1));
+            assertFalse(nodeDictionary.evaluate(condition2, assignment1));
+
+            // The last child takes over the truth values of its parent.
+            assignments.release(graph.get(1));
+            final VariableAssignment assignment2 = assignments.create(graph.get(2), graph.getVariable(2));
+            assertFalse(nodeDictionary.evaluate(condition1, assignment2));
+            assertTrue(nodeDictionary.evaluate(condition2, assignment2));
+
+            // The merge inherits from its first parent and must see the variable of the second one.
+            final VariableAssignment assignment3 = assignments.create(graph.get(3), graph.getVariable(3));
+            assertTrue(nodeDictionary.evaluate(condition1, assignment3));
+            assertTrue(nodeDictionary.evaluate(condition2, assignment3));
+        }
+    }
+
+    @Test
+    public void testRelease() throws IOException, GitAPIException {
+        try (CommitGraph graph = new CommitGraph()) {
+            graph.add();
+            graph.add(0);
+            graph.add(0);
+            final NodeDictionary nodeDictionary = new NodeDictionary();
+            final CommitReachability reachability = new CommitReachability(graph.getRoot(), graph.getGitUtils());
+            final CommitAssignments assignments = new CommitAssignments(nodeDictionary, reachability);
+
+            final VariableAssignment assignment0 = assignments.create(graph.get(0), graph.getVariable(0));
+            assertSame(assignment0, assignments.create(graph.get(0), graph.getVariable(0)));
+            assertTrue(assignments.hasAllParents(graph.get(1)));
+            assignments.create(graph.get(1), graph.getVariable(1));
+
+            // A leaf is dropped on release. Its parent stays alive until its last child is released.
+            assignments.release(graph.get(0));
+            assignments.release(graph.get(1));
+            assignments.release(graph.get(1));
+            assertCreateFails(assignments, graph, 1);
+            assertSame(assignment0, assignments.create(graph.get(0), graph.getVariable(0)));
+
+            assignments.create(graph.get(2), graph.getVariable(2));
+            assignments.release(graph.get(2));
+            assertCreateFails(assignments, graph, 0);
+            assertCreateFails(assignments, graph, 2);
+            assertEquals(3, assignments.size());
+            assertTrue(assignments.contains(graph.get(2)));
+        }
+    }
+
+    private static void assertCreateFails(CommitAssignments assignments, CommitGraph graph, int index) {
+        try {
+            assignments.create(graph.get(index), graph.getVariable(index));
+            fail();
+        } catch (final IllegalStateException e) {
+        }
+    }
+}